@@ -0,0 +1,31 @@
+package org.example.common.sensitive;
+
+import java.lang.annotation.*;
+
+/**
+ * 敏感字段，记录日志时脱敏输出
+ * <p>
+ * 只对注册了{@link SensitiveSerializerModifier}的ObjectMapper生效，不影响接口正常的序列化
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Target({ElementType.FIELD, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Sensitive {
+
+    /**
+     * 保留开头的字符数，默认全部隐藏
+     *
+     * @return
+     */
+    int prefix() default 0;
+
+    /**
+     * 保留结尾的字符数，默认全部隐藏
+     *
+     * @return
+     */
+    int suffix() default 0;
+}
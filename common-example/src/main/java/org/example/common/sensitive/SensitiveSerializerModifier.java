@@ -0,0 +1,69 @@
+package org.example.common.sensitive;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 把标注了{@link Sensitive}的属性替换为脱敏输出
+ * <pre>
+ * ObjectMapper mapper = objectMapper.copy();
+ * mapper.setSerializerFactory(mapper.getSerializerFactory().withSerializerModifier(new SensitiveSerializerModifier()));
+ * </pre>
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class SensitiveSerializerModifier extends BeanSerializerModifier {
+    private static final String MASK = "****";
+
+    @Override
+    public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+                                                     List<BeanPropertyWriter> beanProperties) {
+        for (BeanPropertyWriter writer : beanProperties) {
+            Sensitive sensitive = writer.getAnnotation(Sensitive.class);
+            if (sensitive != null) {
+                writer.assignSerializer(new MaskSerializer(sensitive.prefix(), sensitive.suffix()));
+            }
+        }
+        return beanProperties;
+    }
+
+    /**
+     * 脱敏，保留首尾指定的字符，中间固定替换为****，不暴露原始长度
+     *
+     * @param value
+     * @param prefix
+     * @param suffix
+     * @return
+     */
+    public static String mask(String value, int prefix, int suffix) {
+        if (prefix + suffix >= value.length()) {
+            return MASK;
+        }
+        return value.substring(0, prefix) + MASK + value.substring(value.length() - suffix);
+    }
+
+    private static class MaskSerializer extends StdSerializer<Object> {
+        private final int prefix;
+        private final int suffix;
+
+        MaskSerializer(int prefix, int suffix) {
+            super(Object.class);
+            this.prefix = Math.max(prefix, 0);
+            this.suffix = Math.max(suffix, 0);
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString(mask(value.toString(), prefix, suffix));
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package org.example.common.serializer;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.example.common.response.ResultEntity;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 基于kryo的redis值序列化
+ * <p>
+ * 与Jackson默认类型相比，注册过的类只写一个整数ID，不写类名，体积更小、速度更快。
+ * Kryo实例不是线程安全的，创建又比较重，因此放在池中复用；序列化结果超过阈值时用LZ4压缩（引入了lz4-java时生效）。
+ * 格式：1字节标记 + 内容，标记为{@link #FORMAT_LZ4}时内容为4字节原始长度 + 压缩数据
+ * <p>
+ * 只能序列化注册过的类，未注册的类直接抛出异常，避免反序列化时按数据中的类名实例化任意类。
+ * 默认注册了常用集合、{@code Arrays.asList}和{@code Collections}的空集合、单元素集合、不可修改集合，业务类需要通过构造参数注册。
+ * 注册的类按顺序分配ID，所有读写同一份数据的节点必须使用相同的注册列表和顺序，新增类只能追加在最后
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class KryoRedisSerializer implements RedisSerializer<Object> {
+    private static final byte FORMAT_RAW = 0;
+    private static final byte FORMAT_LZ4 = 1;
+    private static final int HEADER = 1;
+    private static final int LENGTH = 4;
+    /**
+     * 输出缓冲区初始大小，超过MAX_POOLED_BUFFER的缓冲区用完不放回池中，避免长期占用内存
+     */
+    private static final int BUFFER_SIZE = 4096;
+    private static final int MAX_POOLED_BUFFER = 64 * 1024;
+    private static final boolean LZ4_PRESENT =
+            ClassUtils.isPresent("net.jpountz.lz4.LZ4Factory", KryoRedisSerializer.class.getClassLoader());
+
+    private final Pool<Kryo> kryoPool;
+    private final Pool<Output> outputPool;
+    private final int compressThreshold;
+
+    /**
+     * 只注册默认的类，1KB以上压缩
+     */
+    public KryoRedisSerializer() {
+        this(1024);
+    }
+
+    /**
+     * @param compressThreshold 超过该字节数时压缩，小于0表示不压缩
+     * @param classes           额外注册的类，追加在默认注册的类之后
+     */
+    public KryoRedisSerializer(int compressThreshold, Class<?>... classes) {
+        this.compressThreshold = LZ4_PRESENT ? compressThreshold : -1;
+        List<Class<?>> registered = new ArrayList<>(Arrays.asList(ArrayList.class, HashMap.class,
+                LinkedHashMap.class, HashSet.class, Date.class, ResultEntity.class, LinkedHashSet.class,
+                //kryo自带这些类的序列化器，注册即可
+                Arrays.asList().getClass(), Collections.emptyList().getClass(), Collections.emptySet().getClass(),
+                Collections.emptyMap().getClass(), Collections.singletonList(null).getClass(),
+                Collections.singleton(null).getClass(), Collections.singletonMap(null, null).getClass()));
+        Map<Class<?>, Serializer<?>> unmodifiable = unmodifiableSerializers();
+        registered.addAll(unmodifiable.keySet());
+        registered.addAll(Arrays.asList(classes));
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        int capacity = Runtime.getRuntime().availableProcessors() * 2;
+        this.kryoPool = new Pool<Kryo>(true, false, capacity) {
+            @Override
+            protected Kryo create() {
+                Kryo kryo = new Kryo();
+                kryo.setClassLoader(classLoader);
+                kryo.setRegistrationRequired(true);
+                //支持对象之间的循环引用
+                kryo.setReferences(true);
+                //没有无参构造器的类直接创建实例
+                kryo.setInstantiatorStrategy(new DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+                for (Class<?> type : registered) {
+                    Serializer<?> serializer = unmodifiable.get(type);
+                    if (serializer == null) {
+                        kryo.register(type);
+                    } else {
+                        kryo.register(type, serializer);
+                    }
+                }
+                return kryo;
+            }
+        };
+        this.outputPool = new Pool<Output>(true, false, capacity) {
+            @Override
+            protected Output create() {
+                return new Output(BUFFER_SIZE, -1);
+            }
+        };
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        Kryo kryo = kryoPool.obtain();
+        Output output = outputPool.obtain();
+        try {
+            output.setPosition(HEADER);
+            kryo.writeClassAndObject(output, value);
+            int length = output.position() - HEADER;
+            byte[] buffer = output.getBuffer();
+            if (compressThreshold >= 0 && length > compressThreshold) {
+                byte[] compressed = Lz4.compress(buffer, HEADER, length);
+                if (compressed != null) {
+                    return compressed;
+                }
+            }
+            byte[] bytes = Arrays.copyOf(buffer, HEADER + length);
+            bytes[0] = FORMAT_RAW;
+            return bytes;
+        } catch (RuntimeException e) {
+            //异常时kryo内部的引用表没有清理
+            kryo.reset();
+            throw new SerializationException("Could not serialize " + value.getClass().getName(), e);
+        } finally {
+            kryoPool.free(kryo);
+            if (output.getBuffer().length <= MAX_POOLED_BUFFER) {
+                outputPool.free(output);
+            }
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        Input input;
+        if (bytes[0] == FORMAT_RAW) {
+            input = new Input(bytes, HEADER, bytes.length - HEADER);
+        } else if (bytes[0] == FORMAT_LZ4 && LZ4_PRESENT) {
+            input = new Input(Lz4.decompress(bytes));
+        } else {
+            throw new SerializationException("Unknown format: " + bytes[0]);
+        }
+        Kryo kryo = kryoPool.obtain();
+        try {
+            return kryo.readClassAndObject(input);
+        } catch (RuntimeException e) {
+            kryo.reset();
+            throw new SerializationException("Could not deserialize", e);
+        } finally {
+            kryoPool.free(kryo);
+        }
+    }
+
+    /**
+     * {@code Collections.unmodifiable*}返回的包装类没有无参构造器，内部集合也不可修改，kryo默认的集合序列化器无法读取
+     *
+     * @return 包装类 -> 序列化器，按固定顺序
+     */
+    private static Map<Class<?>, Serializer<?>> unmodifiableSerializers() {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(Collections.unmodifiableCollection(new ArrayList<>()).getClass(), new UnmodifiableSerializer(
+                value -> new ArrayList<>((Collection<?>) value), value -> Collections.unmodifiableCollection((Collection<?>) value)));
+        //ArrayList等随机访问列表与LinkedList的包装类不同，读取时还原为对应的包装类
+        serializers.put(Collections.unmodifiableList(new ArrayList<>()).getClass(), new UnmodifiableSerializer(
+                value -> new ArrayList<>((Collection<?>) value), value -> Collections.unmodifiableList((List<?>) value)));
+        serializers.put(Collections.unmodifiableList(new LinkedList<>()).getClass(), new UnmodifiableSerializer(
+                value -> new ArrayList<>((Collection<?>) value),
+                value -> Collections.unmodifiableList(new LinkedList<>((Collection<?>) value))));
+        serializers.put(Collections.unmodifiableSet(new HashSet<>()).getClass(), new UnmodifiableSerializer(
+                value -> new LinkedHashSet<>((Collection<?>) value), value -> Collections.unmodifiableSet((Set<?>) value)));
+        serializers.put(Collections.unmodifiableMap(new HashMap<>()).getClass(), new UnmodifiableSerializer(
+                value -> new LinkedHashMap<>((Map<?, ?>) value), value -> Collections.unmodifiableMap((Map<?, ?>) value)));
+        return serializers;
+    }
+
+    /**
+     * 写入时复制为普通集合，读取后重新包装为不可修改集合
+     */
+    private static final class UnmodifiableSerializer extends Serializer<Object> {
+        private final Function<Object, Object> copy;
+        private final Function<Object, Object> wrap;
+
+        UnmodifiableSerializer(Function<Object, Object> copy, Function<Object, Object> wrap) {
+            this.copy = copy;
+            this.wrap = wrap;
+        }
+
+        @Override
+        public void write(Kryo kryo, Output output, Object value) {
+            kryo.writeClassAndObject(output, copy.apply(value));
+        }
+
+        @Override
+        public Object read(Kryo kryo, Input input, Class<?> type) {
+            return wrap.apply(kryo.readClassAndObject(input));
+        }
+    }
+
+    /**
+     * LZ4压缩，单独放在内部类中，没有lz4-java时不会加载
+     */
+    private static final class Lz4 {
+        private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+        private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+        /**
+         * LZ4一个字节的压缩数据最多还原出约255个字节，原始长度超过压缩数据的255倍说明数据已损坏
+         */
+        private static final int MAX_RATIO = 255;
+
+        /**
+         * @param src
+         * @param offset
+         * @param length
+         * @return 压缩后没有变小时返回null
+         */
+        static byte[] compress(byte[] src, int offset, int length) {
+            byte[] dest = new byte[HEADER + LENGTH + COMPRESSOR.maxCompressedLength(length)];
+            int compressed = COMPRESSOR.compress(src, offset, length, dest, HEADER + LENGTH);
+            if (compressed + LENGTH >= length) {
+                return null;
+            }
+            dest[0] = FORMAT_LZ4;
+            dest[1] = (byte) (length >>> 24);
+            dest[2] = (byte) (length >>> 16);
+            dest[3] = (byte) (length >>> 8);
+            dest[4] = (byte) length;
+            return Arrays.copyOf(dest, HEADER + LENGTH + compressed);
+        }
+
+        /**
+         * 长度来自数据本身，损坏或伪造的数据可能给出负数或极大的长度，分配数组之前先校验
+         *
+         * @param src
+         * @return
+         */
+        static byte[] decompress(byte[] src) {
+            if (src.length <= HEADER + LENGTH) {
+                throw new SerializationException("Truncated LZ4 data: " + src.length + " bytes");
+            }
+            int length = ((src[1] & 0xFF) << 24) | ((src[2] & 0xFF) << 16) | ((src[3] & 0xFF) << 8) | (src[4] & 0xFF);
+            if (length < 0 || length > (long) (src.length - HEADER - LENGTH) * MAX_RATIO) {
+                throw new SerializationException("Invalid LZ4 length: " + length);
+            }
+            byte[] dest = new byte[length];
+            try {
+                DECOMPRESSOR.decompress(src, HEADER + LENGTH, dest, 0, length);
+            } catch (LZ4Exception e) {
+                throw new SerializationException("Could not decompress", e);
+            }
+            return dest;
+        }
+    }
+}
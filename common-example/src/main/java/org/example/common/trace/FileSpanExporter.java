@@ -0,0 +1,109 @@
+package org.example.common.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 调用链写入本地文件，每个span一行，格式见{@link Span#appendTo(StringBuilder)}
+ * <p>
+ * 请求线程只把根span放入有界队列，由后台线程写文件，队列满时丢弃
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@ConditionalOnExpression("${trace.enabled:false} and '${trace.exporter:memory}' == 'file'")
+public class FileSpanExporter implements SpanExporter {
+    private static final Logger logger = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    @Value("${trace.file.path:logs/trace.log}")
+    private String path;
+    @Value("${trace.file.queue-size:4096}")
+    private int queueSize;
+
+    private BlockingQueue<Span> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread worker;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void start() throws IOException {
+        Path file = Paths.get(path);
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        queue = new ArrayBlockingQueue<>(queueSize);
+        worker = new Thread(() -> run(file), "trace-file-exporter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        //不中断写入线程，中断会关闭文件通道
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    @Override
+    public void export(Span root) {
+        if (!queue.offer(root)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void run(Path file) {
+        StringBuilder line = new StringBuilder(256);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            while (running || !queue.isEmpty()) {
+                Span root;
+                try {
+                    root = queue.poll(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (root != null) {
+                    write(writer, line, root);
+                    for (Span span : root.getFinished()) {
+                        write(writer, line, span);
+                    }
+                }
+                if (queue.isEmpty()) {
+                    writer.flush();
+                    long droppedCount = dropped.getAndSet(0L);
+                    if (droppedCount > 0) {
+                        logger.warn("调用链导出队列已满，丢弃{}条", droppedCount);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("写入调用链文件失败，path：[{}]", path, e);
+        }
+    }
+
+    private static void write(Writer writer, StringBuilder line, Span span) throws IOException {
+        line.setLength(0);
+        span.appendTo(line);
+        line.append('\n');
+        writer.append(line);
+    }
+}
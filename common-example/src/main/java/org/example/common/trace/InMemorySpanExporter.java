@@ -0,0 +1,73 @@
+package org.example.common.trace;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 内存中保留最近的调用链，超出容量时覆盖最早的
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@ConditionalOnExpression("${trace.enabled:false} and '${trace.exporter:memory}' == 'memory'")
+public class InMemorySpanExporter implements SpanExporter {
+
+    @Value("${trace.memory.capacity:256}")
+    private int capacity;
+
+    private AtomicReferenceArray<Span> traces;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        traces = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public void export(Span root) {
+        traces.set((int) (sequence.getAndIncrement() % capacity), root);
+    }
+
+    /**
+     * 最近的调用链，从新到旧
+     *
+     * @return
+     */
+    public List<Span> recent() {
+        long end = sequence.get();
+        long start = Math.max(0L, end - capacity);
+        List<Span> result = new ArrayList<>((int) (end - start));
+        for (long i = end - 1; i >= start; i--) {
+            Span span = traces.get((int) (i % capacity));
+            if (span != null) {
+                result.add(span);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按traceId查找
+     *
+     * @param traceId 十六进制
+     * @return 不存在或已被覆盖时返回null
+     */
+    public Span find(String traceId) {
+        long id = Long.parseUnsignedLong(traceId, 16);
+        for (int i = 0; i < capacity; i++) {
+            Span span = traces.get(i);
+            if (span != null && span.getTraceId() == id) {
+                return span;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.common.trace;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * 把容器中的redis连接工厂替换为{@link TracingRedisConnectionFactory}，只在引入了spring-data-redis时生效
+ * <p>
+ * 替换的是工厂bean本身，RedisTemplate、缓存管理器、消息监听容器等注入连接工厂的组件都使用包装后的工厂；
+ * 按具体类型（如LettuceConnectionFactory）注入的地方会找不到bean，需要改为按接口注入
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@ConditionalOnClass(name = "org.springframework.data.redis.connection.RedisConnectionFactory")
+@ConditionalOnProperty(name = "trace.enabled", havingValue = "true")
+public class RedisTracingPostProcessor implements BeanPostProcessor {
+
+    /**
+     * 延迟获取，避免后置处理器提前初始化Tracer
+     */
+    private final ObjectProvider<Tracer> tracer;
+
+    public RedisTracingPostProcessor(ObjectProvider<Tracer> tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+        if (bean instanceof RedisConnectionFactory && !(bean instanceof TracingRedisConnectionFactory)) {
+            return TracingRedisConnectionFactory.of((RedisConnectionFactory) bean, tracer.getObject());
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.common.trace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 调用链中的一段耗时
+ * <p>
+ * ID都是long，只在输出时才格式化为十六进制；同一请求内结束的span都挂在根span上，根span结束时整条链一次性导出。
+ * 没有开启跟踪的线程拿到的是{@link #NOOP}，不分配任何对象
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class Span implements AutoCloseable {
+    /**
+     * 单条链最多保留的span数量，超过的只计数
+     */
+    static final int MAX_SPANS = 256;
+
+    /**
+     * 当前线程没有跟踪上下文时使用，所有操作都是空操作
+     */
+    public static final Span NOOP = new Span(null, null, 0L, 0L, 0L, "noop", null);
+
+    private final Tracer tracer;
+    private final Span parent;
+    private final Span root;
+    private final long traceId;
+    private final long spanId;
+    private final long parentId;
+    private final String name;
+    private final String detail;
+    private final long startMillis;
+    private final long startNanos;
+    private long durationNanos;
+    private boolean error;
+    /**
+     * 只有根span使用，保存已结束的span
+     */
+    private List<Span> finished;
+    private int dropped;
+
+    Span(Tracer tracer, Span parent, long traceId, long spanId, long parentId, String name, String detail) {
+        this.tracer = tracer;
+        this.parent = parent;
+        this.root = parent == null ? this : parent.root;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.name = name;
+        this.detail = detail;
+        this.startMillis = tracer == null ? 0L : System.currentTimeMillis();
+        this.startNanos = tracer == null ? 0L : System.nanoTime();
+    }
+
+    /**
+     * 标记执行失败
+     */
+    public void error() {
+        if (tracer != null) {
+            this.error = true;
+        }
+    }
+
+    /**
+     * 结束span，恢复父span为当前span
+     */
+    @Override
+    public void close() {
+        if (tracer == null) {
+            return;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        tracer.finish(this);
+    }
+
+    /**
+     * 子span结束，只在根span上调用，同一请求可能有多个线程，需要同步
+     *
+     * @param span
+     */
+    synchronized void collect(Span span) {
+        if (finished == null) {
+            finished = new ArrayList<>();
+        }
+        if (finished.size() < MAX_SPANS) {
+            finished.add(span);
+        } else {
+            dropped++;
+        }
+    }
+
+    /**
+     * 整条链已结束的span，不含根span
+     *
+     * @return
+     */
+    public synchronized List<Span> getFinished() {
+        return finished == null ? Collections.emptyList() : new ArrayList<>(finished);
+    }
+
+    public synchronized int getDropped() {
+        return dropped;
+    }
+
+    public boolean isRoot() {
+        return root == this;
+    }
+
+    Span getParent() {
+        return parent;
+    }
+
+    Span getRoot() {
+        return root;
+    }
+
+    public long getTraceId() {
+        return traceId;
+    }
+
+    public long getSpanId() {
+        return spanId;
+    }
+
+    public long getParentId() {
+        return parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public boolean isError() {
+        return error;
+    }
+
+    /**
+     * 紧凑格式：traceId spanId parentId 开始时间 用时（微秒） 状态 名称 [详情]
+     *
+     * @param builder
+     */
+    public void appendTo(StringBuilder builder) {
+        builder.append(Long.toHexString(traceId)).append(' ')
+                .append(Long.toHexString(spanId)).append(' ')
+                .append(Long.toHexString(parentId)).append(' ')
+                .append(startMillis).append(' ')
+                .append(durationNanos / 1000L).append(' ')
+                .append(error ? 'E' : 'O').append(' ')
+                .append(name);
+        if (detail != null) {
+            builder.append(' ').append(detail);
+        }
+    }
+}
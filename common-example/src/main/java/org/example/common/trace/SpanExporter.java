@@ -0,0 +1,17 @@
+package org.example.common.trace;
+
+/**
+ * 调用链导出，由trace.exporter配置选择实现
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public interface SpanExporter {
+
+    /**
+     * 导出一条已结束的调用链，在请求线程中调用，实现不能阻塞
+     *
+     * @param root 根span，{@link Span#getFinished()}为链上其余span
+     */
+    void export(Span root);
+}
@@ -0,0 +1,49 @@
+package org.example.common.trace;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * 每个请求开启一条调用链，traceId通过响应头X-Trace-Id返回，方便按请求查找日志和调用链
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "trace.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class TraceFilter extends OncePerRequestFilter {
+    public static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    @Autowired
+    Tracer tracer;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try (Span span = tracer.startTrace(request.getMethod(), request.getRequestURI())) {
+            if (span != Span.NOOP) {
+                response.setHeader(TRACE_ID_HEADER, Long.toHexString(span.getTraceId()));
+            }
+            try {
+                filterChain.doFilter(request, response);
+            } catch (IOException | ServletException | RuntimeException e) {
+                span.error();
+                throw e;
+            }
+            if (response.getStatus() >= 500) {
+                span.error();
+            }
+        }
+    }
+}
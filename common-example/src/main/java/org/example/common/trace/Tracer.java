@@ -0,0 +1,192 @@
+package org.example.common.trace;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 轻量的调用链跟踪
+ * <p>
+ * 当前span保存在ThreadLocal中，traceId同时放入MDC，日志格式中加上%X{traceId}即可按请求关联日志。
+ * 请求入口由{@link TraceFilter}开启跟踪，日志切面、锁切面、redis命令在当前跟踪下开启子span；
+ * 整条链在请求结束时导出，超过慢请求阈值时输出各段耗时
+ * <p>
+ * 公共模块被所有示例扫描，跟踪相关的bean只在配置{@code trace.enabled=true}时创建，没有开启的模块注入{@link #NOOP}
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "trace.enabled", havingValue = "true")
+public class Tracer {
+    private static final Logger logger = LoggerFactory.getLogger(Tracer.class);
+
+    public static final String MDC_TRACE_ID = "traceId";
+
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    /**
+     * 不开启跟踪，所有方法都返回{@link Span#NOOP}，用于没有开启跟踪的模块
+     */
+    public static final Tracer NOOP = new Tracer();
+
+    @Value("${trace.enabled:false}")
+    private boolean enabled;
+    /**
+     * 慢请求阈值（毫秒），超过时输出调用链各段耗时，小于0表示不输出
+     */
+    @Value("${trace.slow-threshold:1000}")
+    private long slowThreshold;
+
+    @Autowired
+    SpanExporter spanExporter;
+
+    /**
+     * 开启一条新的调用链，当前线程已在跟踪中时作为子span
+     *
+     * @param name
+     * @param detail
+     * @return
+     */
+    public Span startTrace(String name, String detail) {
+        if (!enabled) {
+            return Span.NOOP;
+        }
+        if (CURRENT.get() != null) {
+            return startSpan(name, detail);
+        }
+        long traceId = nextId();
+        Span span = new Span(this, null, traceId, traceId, 0L, name, detail);
+        CURRENT.set(span);
+        MDC.put(MDC_TRACE_ID, Long.toHexString(traceId));
+        return span;
+    }
+
+    /**
+     * 在当前调用链下开启子span，当前线程没有跟踪时返回{@link Span#NOOP}
+     *
+     * @param name
+     * @return
+     */
+    public Span startSpan(String name) {
+        return startSpan(name, null);
+    }
+
+    /**
+     * 在当前调用链下开启子span
+     *
+     * @param name
+     * @param detail 附加信息，如锁KEY
+     * @return
+     */
+    public Span startSpan(String name, String detail) {
+        Span parent = CURRENT.get();
+        if (parent == null) {
+            return Span.NOOP;
+        }
+        Span span = new Span(this, parent, parent.getTraceId(), nextId(), parent.getSpanId(), name, detail);
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * 当前线程是否在跟踪中
+     *
+     * @return
+     */
+    public static boolean isTracing() {
+        return CURRENT.get() != null;
+    }
+
+    /**
+     * span结束，子span交给根span保存，根span结束时导出整条链
+     *
+     * @param span
+     */
+    void finish(Span span) {
+        if (CURRENT.get() == span) {
+            Span parent = span.getParent();
+            if (parent == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(parent);
+            }
+        }
+        if (!span.isRoot()) {
+            span.getRoot().collect(span);
+            return;
+        }
+        MDC.remove(MDC_TRACE_ID);
+        try {
+            spanExporter.export(span);
+        } catch (Exception e) {
+            logger.warn("导出调用链失败，traceId：[{}]", Long.toHexString(span.getTraceId()), e);
+        }
+        if (slowThreshold >= 0 && span.getDurationNanos() >= TimeUnit.MILLISECONDS.toNanos(slowThreshold)
+                && logger.isInfoEnabled()) {
+            logger.info("慢请求调用链，traceId：[{}]\n{}", Long.toHexString(span.getTraceId()), breakdown(span));
+        }
+    }
+
+    /**
+     * 按父子关系缩进输出各段耗时
+     *
+     * @param root
+     * @return
+     */
+    public static String breakdown(Span root) {
+        Map<Long, List<Span>> children = new HashMap<>();
+        for (Span span : root.getFinished()) {
+            children.computeIfAbsent(span.getParentId(), id -> new ArrayList<>()).add(span);
+        }
+        for (List<Span> list : children.values()) {
+            list.sort((a, b) -> Long.compare(a.getStartNanos(), b.getStartNanos()));
+        }
+        StringBuilder builder = new StringBuilder();
+        appendTree(builder, root, children, 0);
+        if (root.getDropped() > 0) {
+            builder.append("... ").append(root.getDropped()).append(" spans dropped\n");
+        }
+        return builder.toString();
+    }
+
+    private static void appendTree(StringBuilder builder, Span span, Map<Long, List<Span>> children, int depth) {
+        for (int i = 0; i < depth; i++) {
+            builder.append("  ");
+        }
+        builder.append(span.getName());
+        if (span.getDetail() != null) {
+            builder.append(" [").append(span.getDetail()).append(']');
+        }
+        builder.append(' ').append(span.getDurationNanos() / 1000L / 1000D).append("ms");
+        if (span.isError()) {
+            builder.append(" ERROR");
+        }
+        builder.append('\n');
+        List<Span> list = children.get(span.getSpanId());
+        if (list != null) {
+            for (Span child : list) {
+                appendTree(builder, child, children, depth + 1);
+            }
+        }
+    }
+
+    private static long nextId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0L);
+        return id;
+    }
+}
@@ -0,0 +1,239 @@
+package org.example.common.trace;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.ReactiveRedisClusterConnection;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 包装redis连接工厂，连接上的每条命令在当前调用链下开启一个span
+ * <p>
+ * 由{@link RedisTracingPostProcessor}替换容器中的连接工厂本身，RedisTemplate、缓存管理器等所有使用者都经过它。
+ * {@code stringCommands()}等命令分组访问器不是命令，不记录，返回的命令分组同样被包装，其中每条命令单独记录；
+ * 当前线程没有跟踪时直接调用，管道中的命令不单独记录，只记录提交管道的耗时。
+ * 响应式连接的命令在IO线程上完成，不在请求线程的调用链中，直接交给原工厂
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class TracingRedisConnectionFactory implements RedisConnectionFactory, DisposableBean {
+    /**
+     * 连接管理方法，不是redis命令
+     */
+    private static final Set<String> UNTRACED = new HashSet<>(Arrays.asList(
+            "close", "isClosed", "getNativeConnection", "isQueueing", "isPipelined", "openPipeline",
+            "getSentinelConnection"));
+    /**
+     * 方法 -> span名称
+     */
+    private static final Map<Method, String> SPAN_NAMES = new ConcurrentHashMap<>();
+
+    private final RedisConnectionFactory delegate;
+    private final Tracer tracer;
+
+    public TracingRedisConnectionFactory(RedisConnectionFactory delegate, Tracer tracer) {
+        this.delegate = delegate;
+        this.tracer = tracer;
+    }
+
+    /**
+     * 包装连接工厂，原工厂同时支持响应式连接时（lettuce）包装后仍然支持
+     *
+     * @param delegate
+     * @param tracer
+     * @return
+     */
+    public static TracingRedisConnectionFactory of(RedisConnectionFactory delegate, Tracer tracer) {
+        if (delegate instanceof ReactiveRedisConnectionFactory) {
+            return new Reactive(delegate, tracer);
+        }
+        return new TracingRedisConnectionFactory(delegate, tracer);
+    }
+
+    public RedisConnectionFactory getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        RedisConnection connection = delegate.getConnection();
+        if (connection instanceof RedisClusterConnection) {
+            return wrap((RedisClusterConnection) connection, RedisClusterConnection.class);
+        }
+        return wrap(connection, RedisConnection.class);
+    }
+
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        return wrap(delegate.getClusterConnection(), RedisClusterConnection.class);
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return delegate.getConvertPipelineAndTxResults();
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        return delegate.getSentinelConnection();
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return delegate.translateExceptionIfPossible(ex);
+    }
+
+    /**
+     * 容器销毁的是包装后的bean，由它关闭原工厂
+     *
+     * @throws Exception
+     */
+    @Override
+    public void destroy() throws Exception {
+        if (delegate instanceof DisposableBean) {
+            ((DisposableBean) delegate).destroy();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends RedisConnection> T wrap(T connection, Class<T> type) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new TracingHandler(connection, tracer));
+    }
+
+    /**
+     * 命令分组访问器，如{@code stringCommands()}、{@code keyCommands()}
+     *
+     * @param method
+     * @return
+     */
+    private static boolean isCommandsAccessor(Method method) {
+        return method.getParameterCount() == 0 && method.getReturnType().isInterface()
+                && method.getName().endsWith("Commands");
+    }
+
+    /**
+     * 同时支持响应式连接的工厂
+     */
+    private static final class Reactive extends TracingRedisConnectionFactory implements ReactiveRedisConnectionFactory {
+        private final ReactiveRedisConnectionFactory reactiveDelegate;
+
+        Reactive(RedisConnectionFactory delegate, Tracer tracer) {
+            super(delegate, tracer);
+            this.reactiveDelegate = (ReactiveRedisConnectionFactory) delegate;
+        }
+
+        @Override
+        public ReactiveRedisConnection getReactiveConnection() {
+            return reactiveDelegate.getReactiveConnection();
+        }
+
+        @Override
+        public ReactiveRedisClusterConnection getReactiveClusterConnection() {
+            return reactiveDelegate.getReactiveClusterConnection();
+        }
+    }
+
+    private static class TracingHandler implements InvocationHandler {
+        private final RedisConnection target;
+        private final Tracer tracer;
+        /**
+         * 连接只在一个线程中使用
+         */
+        private boolean pipelined;
+        /**
+         * 访问器 -> 包装后的命令分组
+         */
+        private final Map<Method, Object> commands = new HashMap<>(8);
+
+        TracingHandler(RedisConnection target, Tracer tracer) {
+            this.target = target;
+            this.tracer = tracer;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            if ("openPipeline".equals(methodName)) {
+                pipelined = true;
+            } else if ("closePipeline".equals(methodName)) {
+                //提交管道作为一个span
+                pipelined = false;
+            } else if (isCommandsAccessor(method)) {
+                return commands(method);
+            } else if (pipelined) {
+                return call(target, method, args);
+            }
+            if (method.getDeclaringClass() == Object.class || UNTRACED.contains(methodName) || !Tracer.isTracing()) {
+                return call(target, method, args);
+            }
+            return trace(target, method, args);
+        }
+
+        /**
+         * 包装命令分组，其中的命令与连接上的命令一样记录
+         *
+         * @param accessor
+         * @return
+         * @throws Throwable
+         */
+        private Object commands(Method accessor) throws Throwable {
+            Object wrapped = commands.get(accessor);
+            if (wrapped != null) {
+                return wrapped;
+            }
+            Object delegate = call(target, accessor, null);
+            if (delegate == null) {
+                return null;
+            }
+            Class<?> type = accessor.getReturnType();
+            wrapped = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                if (pipelined || method.getDeclaringClass() == Object.class || !Tracer.isTracing()) {
+                    return call(delegate, method, args);
+                }
+                return trace(delegate, method, args);
+            });
+            commands.put(accessor, wrapped);
+            return wrapped;
+        }
+
+        private Object trace(Object target, Method method, Object[] args) throws Throwable {
+            String name = SPAN_NAMES.get(method);
+            if (name == null) {
+                name = SPAN_NAMES.computeIfAbsent(method, m -> "redis " + m.getName());
+            }
+            try (Span span = tracer.startSpan(name)) {
+                try {
+                    return call(target, method, args);
+                } catch (Throwable e) {
+                    span.error();
+                    throw e;
+                }
+            }
+        }
+
+        private static Object call(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package org.example.common.serializer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * kryo序列化测试
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class KryoRedisSerializerTest {
+    private static final byte FORMAT_RAW = 0;
+    private static final byte FORMAT_LZ4 = 1;
+
+    private final KryoRedisSerializer serializer = new KryoRedisSerializer(1024, Item.class);
+
+    @Test
+    public void smallValueIsStoredRaw() {
+        Map<String, Object> value = new HashMap<>();
+        value.put("name", "a");
+        value.put("count", 1);
+        byte[] bytes = serializer.serialize(value);
+        assertEquals(FORMAT_RAW, bytes[0]);
+        assertEquals(value, serializer.deserialize(bytes));
+    }
+
+    @Test
+    public void largeValueIsCompressed() {
+        List<Item> value = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            value.add(new Item("item-" + (i % 10), i));
+        }
+        byte[] bytes = serializer.serialize(value);
+        assertEquals(FORMAT_LZ4, bytes[0]);
+        assertEquals(value, serializer.deserialize(bytes));
+        //不压缩时结果相同，只是更大
+        byte[] raw = new KryoRedisSerializer(-1, Item.class).serialize(value);
+        assertEquals(FORMAT_RAW, raw[0]);
+        assertTrue(raw.length > bytes.length);
+        assertEquals(value, serializer.deserialize(raw));
+    }
+
+    @Test
+    public void nullAndEmpty() {
+        assertEquals(0, serializer.serialize(null).length);
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    @Test
+    public void wrappersKeepTheirTypes() {
+        List<Object> values = Arrays.asList(
+                Arrays.asList("a", "b"),
+                Collections.emptyList(),
+                Collections.emptySet(),
+                Collections.emptyMap(),
+                Collections.singletonList("a"),
+                Collections.singleton("a"),
+                Collections.singletonMap("k", "v"),
+                Collections.unmodifiableList(new ArrayList<>(Arrays.asList("a", "b"))),
+                Collections.unmodifiableList(new LinkedList<>(Arrays.asList("a", "b"))),
+                Collections.unmodifiableSet(new HashSet<>(Arrays.asList("a", "b"))),
+                Collections.unmodifiableMap(new LinkedHashMap<>(Collections.singletonMap("k", "v"))));
+        for (Object value : values) {
+            Object copy = serializer.deserialize(serializer.serialize(value));
+            assertSame(value.getClass(), copy.getClass(), value.getClass().getName());
+            assertEquals(value, copy);
+        }
+        //unmodifiableCollection没有重写equals，按内容比较
+        Collection<String> collection = Collections.unmodifiableCollection(new ArrayList<>(Arrays.asList("a", "b")));
+        Object copy = serializer.deserialize(serializer.serialize(collection));
+        assertSame(collection.getClass(), copy.getClass());
+        assertEquals(new ArrayList<>(collection), new ArrayList<>((Collection<?>) copy));
+        //读取后仍不可修改
+        assertThrows(UnsupportedOperationException.class, () -> ((Collection<Object>) copy).add("c"));
+    }
+
+    @Test
+    public void unregisteredClassIsRejected() {
+        KryoRedisSerializer defaults = new KryoRedisSerializer();
+        assertThrows(SerializationException.class, () -> defaults.serialize(new Item("a", 1)));
+        //其他节点注册了该类写入的数据，本节点没有注册时同样拒绝读取
+        byte[] bytes = serializer.serialize(new Item("a", 1));
+        assertThrows(SerializationException.class, () -> defaults.deserialize(bytes));
+        //失败后池中的实例仍然可用
+        assertEquals(Collections.singletonList("a"), defaults.deserialize(defaults.serialize(Collections.singletonList("a"))));
+    }
+
+    @Test
+    public void unknownFormatIsRejected() {
+        assertThrows(SerializationException.class, () -> serializer.deserialize(new byte[]{9, 1, 2}));
+    }
+
+    @Test
+    public void corruptLz4LengthIsRejectedBeforeAllocating() {
+        //负数长度
+        assertThrows(SerializationException.class,
+                () -> serializer.deserialize(new byte[]{FORMAT_LZ4, (byte) 0x80, 0, 0, 0, 0}));
+        //长度远超压缩数据能还原的大小
+        assertThrows(SerializationException.class,
+                () -> serializer.deserialize(new byte[]{FORMAT_LZ4, 0x7F, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0, 0}));
+        //没有压缩数据
+        assertThrows(SerializationException.class, () -> serializer.deserialize(new byte[]{FORMAT_LZ4, 0, 0}));
+        //长度合理但压缩数据损坏
+        List<String> value = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            value.add("value-" + (i % 10));
+        }
+        byte[] bytes = serializer.serialize(value);
+        assertEquals(FORMAT_LZ4, bytes[0]);
+        byte[] corrupt = Arrays.copyOf(bytes, bytes.length / 2);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(corrupt));
+        //完整数据仍可读取
+        assertEquals(value, serializer.deserialize(bytes));
+    }
+
+    /**
+     * 业务类，需要注册
+     */
+    static class Item {
+        private String name;
+        private int count;
+
+        Item(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Item)) {
+                return false;
+            }
+            Item other = (Item) o;
+            return name.equals(other.name) && count == other.count;
+        }
+
+        @Override
+        public int hashCode() {
+            return name.hashCode() * 31 + count;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.common.trace;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 调用链跟踪只在trace.enabled=true时注册
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class TraceConditionTest {
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withUserConfiguration(TraceConfig.class)
+            .withBean(RedisConnectionFactory.class, LettuceConnectionFactory::new);
+
+    @Test
+    public void disabledByDefault() {
+        runner.run(context -> {
+            assertThat(context).doesNotHaveBean(Tracer.class);
+            assertThat(context).doesNotHaveBean(TraceFilter.class);
+            assertThat(context).doesNotHaveBean(SpanExporter.class);
+            assertThat(context.getBean(RedisConnectionFactory.class)).isNotInstanceOf(TracingRedisConnectionFactory.class);
+        });
+    }
+
+    @Test
+    public void enabledByProperty() {
+        runner.withPropertyValues("trace.enabled=true").run(context -> {
+            assertThat(context).hasSingleBean(Tracer.class);
+            assertThat(context).hasSingleBean(TraceFilter.class);
+            assertThat(context).getBean(SpanExporter.class).isInstanceOf(InMemorySpanExporter.class);
+            assertThat(context.getBean(RedisConnectionFactory.class)).isInstanceOf(TracingRedisConnectionFactory.class);
+        });
+    }
+
+    @Test
+    public void exporterIsSelectedOnlyWhenEnabled() {
+        runner.withPropertyValues("trace.exporter=file").run(context ->
+                assertThat(context).doesNotHaveBean(SpanExporter.class));
+        runner.withPropertyValues("trace.enabled=true", "trace.exporter=file",
+                "trace.file.path=target/trace-condition-test.log").run(context ->
+                assertThat(context).getBean(SpanExporter.class).isInstanceOf(FileSpanExporter.class));
+    }
+
+    @Test
+    public void noopTracerNeverStartsSpans() {
+        assertThat(Tracer.NOOP.startTrace("GET", "/")).isSameAs(Span.NOOP);
+        assertThat(Tracer.NOOP.startSpan("lock")).isSameAs(Span.NOOP);
+        assertThat(Tracer.isTracing()).isFalse();
+    }
+
+    @Configuration
+    @ComponentScan(basePackageClasses = Tracer.class)
+    static class TraceConfig {
+    }
+}
@@ -50,4 +50,10 @@ public class LogController {
         }
         return ResultEntity.ok();
     }
+
+    @Log(module = "日志模块", info = "记录参数", captureArgs = true, captureResult = true)
+    @GetMapping("/aopLogArgs")
+    public ResultEntity<String> aopLogArgs(String name) {
+        return ResultEntity.ok("hello " + name);
+    }
 }
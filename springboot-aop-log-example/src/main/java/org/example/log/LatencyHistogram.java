@@ -0,0 +1,195 @@
+package org.example.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 滚动窗口耗时直方图
+ * <p>
+ * 与HdrHistogram一样按对数分桶：每个2的幂区间再均分为32个子桶，相对误差约3%，任意耗时都能记录且内存固定。
+ * 记录只是一次数组下标计算和一次原子自增，不加锁。时间按窗口滚动，统计只包含最近windows个窗口，
+ * 过期的窗口在下一次写入时重置
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * 覆盖全部正long值需要的桶数量
+     */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final String module;
+    private final String info;
+    private final long windowNanos;
+    private final Window[] windows;
+
+    /**
+     * @param module
+     * @param info
+     * @param windowNanos 单个窗口的时长（纳秒）
+     * @param windows     窗口数量
+     */
+    LatencyHistogram(String module, String info, long windowNanos, int windows) {
+        this.module = module;
+        this.info = info;
+        this.windowNanos = windowNanos;
+        this.windows = new Window[windows];
+        for (int i = 0; i < windows; i++) {
+            this.windows[i] = new Window();
+        }
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public String getInfo() {
+        return info;
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0L);
+        long epoch = Math.floorDiv(System.nanoTime(), windowNanos);
+        Window window = windows[(int) Math.floorMod(epoch, (long) windows.length)];
+        if (window.epoch != epoch) {
+            window.reset(epoch);
+        }
+        window.counts.incrementAndGet(index(value));
+        window.count.incrementAndGet();
+        long max;
+        while (value > (max = window.max.get()) && !window.max.compareAndSet(max, value)) {
+            //其他线程更新了最大值，重新比较
+        }
+    }
+
+    /**
+     * 合并最近windows个窗口
+     *
+     * @return
+     */
+    public Snapshot snapshot() {
+        long current = Math.floorDiv(System.nanoTime(), windowNanos);
+        long[] counts = new long[BUCKETS];
+        long total = 0L;
+        long max = 0L;
+        for (Window window : windows) {
+            if (window.epoch <= current - windows.length) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += window.counts.get(i);
+            }
+            total += window.count.get();
+            max = Math.max(max, window.max.get());
+        }
+        return new Snapshot(counts, total, max);
+    }
+
+    /**
+     * 耗时对应的桶，小于32的值每个值一个桶，之后每个2的幂区间32个桶
+     *
+     * @param value
+     * @return
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * 桶的中间值
+     *
+     * @param index
+     * @return
+     */
+    static long valueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lower + ((1L << shift) >> 1);
+    }
+
+    /**
+     * 单个时间窗口
+     */
+    private static class Window {
+        private volatile long epoch = Long.MIN_VALUE;
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        /**
+         * 每个窗口周期只重置一次，重置期间并发写入的少量数据可能丢失
+         *
+         * @param newEpoch
+         */
+        synchronized void reset(long newEpoch) {
+            if (epoch == newEpoch) {
+                return;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0L);
+            }
+            count.set(0L);
+            max.set(0L);
+            epoch = newEpoch;
+        }
+    }
+
+    /**
+     * 直方图快照
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * 百分位耗时（纳秒）
+         *
+         * @param percentile 0~1
+         * @return
+         */
+        public long percentile(double percentile) {
+            if (count == 0L) {
+                return 0L;
+            }
+            long target = Math.max(1L, (long) Math.ceil(percentile * count));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Math.min(valueOf(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
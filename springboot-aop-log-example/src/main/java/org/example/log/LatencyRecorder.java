@@ -0,0 +1,47 @@
+package org.example.log;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按（模块，接口）记录耗时直方图
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+public class LatencyRecorder {
+
+    /**
+     * 单个窗口的时长（秒）
+     */
+    @Value("${log.latency.window:10}")
+    private long window;
+    /**
+     * 窗口数量，统计最近window * windows秒
+     */
+    @Value("${log.latency.windows:6}")
+    private int windows;
+
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    /**
+     * 获取（模块，接口）对应的直方图
+     *
+     * @param module
+     * @param info
+     * @return
+     */
+    public LatencyHistogram histogram(String module, String info) {
+        return histograms.computeIfAbsent(module + "#" + info,
+                k -> new LatencyHistogram(module, info, TimeUnit.SECONDS.toNanos(window), windows));
+    }
+
+    public Collection<LatencyHistogram> histograms() {
+        return histograms.values();
+    }
+}
@@ -27,4 +27,32 @@ public @interface Log {
      * @return
      */
     String info() default "";
+
+    /**
+     * 文本日志采样率，0~1，默认全部输出；执行失败和慢调用不受采样影响，总是输出；操作日志入库不受影响
+     *
+     * @return
+     */
+    double sampleRate() default 1D;
+
+    /**
+     * 慢调用阈值（毫秒），用时超过阈值时总是输出文本日志，小于0表示不启用
+     *
+     * @return
+     */
+    long slowThreshold() default -1L;
+
+    /**
+     * 是否记录参数，序列化在日志写入线程中进行，不占用请求线程
+     *
+     * @return
+     */
+    boolean captureArgs() default false;
+
+    /**
+     * 是否记录返回值
+     *
+     * @return
+     */
+    boolean captureResult() default false;
 }
@@ -3,11 +3,16 @@ package org.example.log;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.*;
 import org.aspectj.lang.reflect.MethodSignature;
+import org.example.common.trace.Span;
+import org.example.common.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 操作日志切面
@@ -32,6 +37,26 @@ public class LogAspect {
 
     private static final Logger logger = LoggerFactory.getLogger(LogAspect.class);
 
+    @Autowired
+    OperationLogWriter operationLogWriter;
+
+    @Autowired
+    LatencyRecorder latencyRecorder;
+
+    @Autowired
+    LogSampler logSampler;
+
+    /**
+     * 没有开启跟踪（trace.enabled）时使用空实现
+     */
+    @Autowired(required = false)
+    Tracer tracer = Tracer.NOOP;
+
+    /**
+     * 方法 -> 注解元数据
+     */
+    private final ConcurrentHashMap<Method, LogMetadata> metadataCache = new ConcurrentHashMap<>();
+
     @Pointcut("@annotation(org.example.log.Log)")
     public void log() {
     }
@@ -47,19 +72,39 @@ public class LogAspect {
     public Object logAround(ProceedingJoinPoint joinPoint) throws Throwable {
         MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
         Method method = methodSignature.getMethod();
-        Log log = method.getAnnotation(Log.class);
-        long startTime = System.currentTimeMillis();
+        LogMetadata metadata = metadataCache.get(method);
+        if (metadata == null) {
+            metadata = metadataCache.computeIfAbsent(method, m -> new LogMetadata(m, latencyRecorder, logSampler));
+        }
+        long createTime = System.currentTimeMillis();
+        //nanoTime精度足够统计亚毫秒级的接口
+        long startTime = System.nanoTime();
+        boolean success = false;
+        Object result = null;
+        //在当前请求的调用链下记录一段耗时，没有跟踪时为空操作
+        Span span = tracer.startSpan(metadata.getSpanName());
         try {
             //获取到锁，继续执行业务
-            return joinPoint.proceed();
-        } catch (Throwable e) {
-            throw e;
+            result = joinPoint.proceed();
+            success = true;
+            return result;
         } finally {
-            long endTime = System.currentTimeMillis();
-            long diffTime = endTime - startTime;
-            logger.info("记录日志，模块：{}，描述：{}，用时：{}毫秒", log.module(), log.info(), diffTime);
-            //TODO
-            //插入数据库操作
+            if (!success) {
+                span.error();
+            }
+            span.close();
+            long costNanos = System.nanoTime() - startTime;
+            metadata.getHistogram().record(costNanos);
+            long diffTime = TimeUnit.NANOSECONDS.toMillis(costNanos);
+            //耗时分布总是统计，文本日志按采样、限流决定
+            if (logger.isInfoEnabled() && logSampler.shouldLog(metadata, diffTime, success)) {
+                logger.info(metadata.getFormat(), diffTime);
+            }
+            //操作日志是审计记录，每次调用都入库；放入缓冲区，由后台线程批量入库，参数、返回值也在后台线程序列化，不占用请求线程
+            operationLogWriter.write(new OperationLog(metadata.getModule(), metadata.getInfo(), metadata.getMethod(),
+                    diffTime, success, createTime,
+                    metadata.isCaptureArgs() ? joinPoint.getArgs() : null,
+                    metadata.isCaptureResult() ? result : null));
         }
     }
 }
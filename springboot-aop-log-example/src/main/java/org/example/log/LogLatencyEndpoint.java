@@ -0,0 +1,44 @@
+package org.example.log;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 接口耗时分布，访问/actuator/loglatency，耗时单位为毫秒
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@Endpoint(id = "loglatency")
+public class LogLatencyEndpoint {
+    private static final double NANOS_PER_MILLI = 1_000_000D;
+
+    @Autowired
+    LatencyRecorder latencyRecorder;
+
+    @ReadOperation
+    public List<Map<String, Object>> latency() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (LatencyHistogram histogram : latencyRecorder.histograms()) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("module", histogram.getModule());
+            item.put("info", histogram.getInfo());
+            item.put("count", snapshot.getCount());
+            item.put("p50", snapshot.percentile(0.5D) / NANOS_PER_MILLI);
+            item.put("p99", snapshot.percentile(0.99D) / NANOS_PER_MILLI);
+            item.put("p999", snapshot.percentile(0.999D) / NANOS_PER_MILLI);
+            item.put("max", snapshot.getMax() / NANOS_PER_MILLI);
+            result.add(item);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.log;
+
+import java.lang.reflect.Method;
+
+/**
+ * 方法上@Log注解的元数据，每个方法只在第一次调用时解析一次，之后切面不再反射读取注解、拼接字符串
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+final class LogMetadata {
+    private final String module;
+    private final String info;
+    /**
+     * 类名#方法名
+     */
+    private final String method;
+    /**
+     * 已拼好模块、描述的日志格式，只剩耗时一个占位符
+     */
+    private final String format;
+    /**
+     * 调用链中的span名称
+     */
+    private final String spanName;
+    private final LatencyHistogram histogram;
+    private final double sampleRate;
+    private final long slowThreshold;
+    private final LogSampler.ModuleState moduleState;
+    private final boolean captureArgs;
+    private final boolean captureResult;
+
+    LogMetadata(Method method, LatencyRecorder latencyRecorder, LogSampler logSampler) {
+        Log log = method.getAnnotation(Log.class);
+        this.module = log.module();
+        this.info = log.info();
+        this.method = method.getDeclaringClass().getSimpleName() + "#" + method.getName();
+        this.spanName = "log " + this.method;
+        this.format = "记录日志，模块：" + escape(module) + "，描述：" + escape(info) + "，用时：{}毫秒";
+        this.histogram = latencyRecorder.histogram(module, info);
+        this.sampleRate = log.sampleRate();
+        this.slowThreshold = log.slowThreshold();
+        this.moduleState = logSampler.module(module);
+        this.captureArgs = log.captureArgs();
+        this.captureResult = log.captureResult();
+    }
+
+    String getModule() {
+        return module;
+    }
+
+    String getInfo() {
+        return info;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getFormat() {
+        return format;
+    }
+
+    String getSpanName() {
+        return spanName;
+    }
+
+    LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    double getSampleRate() {
+        return sampleRate;
+    }
+
+    long getSlowThreshold() {
+        return slowThreshold;
+    }
+
+    LogSampler.ModuleState getModuleState() {
+        return moduleState;
+    }
+
+    boolean isCaptureArgs() {
+        return captureArgs;
+    }
+
+    boolean isCaptureResult() {
+        return captureResult;
+    }
+
+    /**
+     * 转义slf4j占位符
+     *
+     * @param value
+     * @return
+     */
+    private static String escape(String value) {
+        return value.replace("{}", "\\{}");
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.log;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.common.sensitive.SensitiveSerializerModifier;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.validation.Errors;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 参数、返回值序列化，只在日志写入线程中使用，不是线程安全的
+ * <p>
+ * 直接把JSON流式写入一块复用的固定大小缓冲区，超过字节上限时立即中止序列化并截断，
+ * 大对象不会先生成完整的字符串再截取。标注了{@link org.example.common.sensitive.Sensitive}的字段脱敏输出
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+final class LogPayloadSerializer {
+    private static final String TRUNCATED = "...";
+
+    private final ObjectMapper objectMapper;
+    private final BoundedOutputStream out;
+
+    /**
+     * @param objectMapper 应用的ObjectMapper，会复制一份，不影响原有配置
+     * @param maxBytes     单个字段序列化后的最大字节数
+     */
+    LogPayloadSerializer(ObjectMapper objectMapper, int maxBytes) {
+        ObjectMapper mapper = objectMapper.copy();
+        mapper.setSerializerFactory(mapper.getSerializerFactory().withSerializerModifier(new SensitiveSerializerModifier()));
+        mapper.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+        this.objectMapper = mapper;
+        this.out = new BoundedOutputStream(maxBytes);
+    }
+
+    /**
+     * 序列化参数为JSON数组，请求、响应、文件等不能序列化的参数只输出类型
+     *
+     * @param args
+     * @return
+     */
+    String serializeArgs(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        out.reset();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.writeStartArray();
+            for (Object arg : args) {
+                if (isIgnored(arg)) {
+                    gen.writeString(arg.getClass().getName());
+                } else {
+                    objectMapper.writeValue(gen, arg);
+                }
+            }
+            gen.writeEndArray();
+        } catch (Exception e) {
+            return failed(e);
+        }
+        return out.asString();
+    }
+
+    /**
+     * 序列化返回值
+     *
+     * @param result
+     * @return
+     */
+    String serializeResult(Object result) {
+        if (result == null) {
+            return null;
+        }
+        out.reset();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            objectMapper.writeValue(gen, result);
+        } catch (Exception e) {
+            return failed(e);
+        }
+        return out.asString();
+    }
+
+    /**
+     * 超过上限抛出的异常由缓冲区标记，此时返回已写入的部分
+     *
+     * @param e
+     * @return
+     */
+    private String failed(Exception e) {
+        if (out.isOverflow()) {
+            return out.asString() + TRUNCATED;
+        }
+        return "序列化失败：" + e.getClass().getSimpleName();
+    }
+
+    private static boolean isIgnored(Object arg) {
+        return arg instanceof ServletRequest || arg instanceof ServletResponse
+                || arg instanceof InputStreamSource || arg instanceof Errors;
+    }
+
+    /**
+     * 固定大小的缓冲区，写满后抛出异常中止序列化
+     */
+    private static final class BoundedOutputStream extends OutputStream {
+        private final byte[] buf;
+        private int count;
+        private boolean overflow;
+
+        BoundedOutputStream(int size) {
+            this.buf = new byte[size];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count >= buf.length) {
+                overflow();
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int n = Math.min(len, buf.length - count);
+            System.arraycopy(b, off, buf, count, n);
+            count += n;
+            if (n < len) {
+                overflow();
+            }
+        }
+
+        private void overflow() throws IOException {
+            overflow = true;
+            throw new IOException("payload exceeds " + buf.length + " bytes");
+        }
+
+        void reset() {
+            count = 0;
+            overflow = false;
+        }
+
+        boolean isOverflow() {
+            return overflow;
+        }
+
+        /**
+         * 截断时不能保留半个UTF-8字符
+         *
+         * @return
+         */
+        String asString() {
+            int end = count;
+            if (overflow) {
+                //找到最后一个字符的首字节，字节不完整时整个字符丢弃
+                int lead = end;
+                while (lead > 0 && (buf[lead - 1] & 0xC0) == 0x80) {
+                    lead--;
+                }
+                if (lead > 0 && end - lead + 1 < charLength(buf[lead - 1])) {
+                    end = lead - 1;
+                }
+            }
+            return new String(buf, 0, end, StandardCharsets.UTF_8);
+        }
+
+        private static int charLength(byte lead) {
+            if ((lead & 0x80) == 0) {
+                return 1;
+            }
+            if ((lead & 0xE0) == 0xC0) {
+                return 2;
+            }
+            return (lead & 0xF0) == 0xE0 ? 3 : 4;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.log;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形缓冲区，多个生产者、单个消费者
+ * <p>
+ * 生产者通过CAS抢占写入位置后写入元素，消费者按顺序读取，读到空位说明生产者还没写完（或缓冲区为空），下次再读。
+ * 生产者之间只竞争一个CAS，不加锁、不分配节点
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+class LogRingBuffer<E> {
+    private final AtomicReferenceArray<E> buffer;
+    private final int mask;
+    /**
+     * 下一个写入位置，生产者竞争
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * 下一个读取位置，只被消费者修改
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity 向上取整为2的幂
+     */
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 写入，缓冲区满时立即返回
+     *
+     * @param e
+     * @return 是否写入成功
+     */
+    boolean offer(E e) {
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() > mask) {
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                buffer.lazySet((int) (t & mask), e);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 读取最多max个元素，只能由一个线程调用
+     *
+     * @param to
+     * @param max
+     * @return 读取的数量
+     */
+    int drain(List<E> to, int max) {
+        long h = head.get();
+        int count = 0;
+        while (count < max) {
+            int index = (int) (h & mask);
+            E e = buffer.get(index);
+            if (e == null) {
+                break;
+            }
+            buffer.lazySet(index, null);
+            to.add(e);
+            h++;
+            count++;
+        }
+        head.lazySet(h);
+        return count;
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文本日志采样与限流
+ * <p>
+ * 高并发下每次调用都输出日志会产生大量IO。执行失败、慢调用总是输出；其余调用先按@Log的采样率采样，
+ * 再经过模块的令牌桶限流，未输出的调用按模块计数，定期输出一条汇总，不会完全丢失信号。
+ * 只影响文本日志，操作日志入库是审计记录，不经过采样
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+public class LogSampler {
+    private static final Logger logger = LoggerFactory.getLogger(LogSampler.class);
+
+    /**
+     * 每个模块每秒最多记录的日志条数，小于等于0表示不限制
+     */
+    @Value("${log.sampling.rate-limit:0}")
+    private int rateLimit;
+    /**
+     * 输出汇总的间隔（秒）
+     */
+    @Value("${log.sampling.summary-interval:60}")
+    private long summaryInterval;
+
+    /**
+     * 模块 -> 限流状态
+     */
+    private final Map<String, ModuleState> modules = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "log-sampling-summary");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::summary, summaryInterval, summaryInterval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        summary();
+    }
+
+    /**
+     * 获取模块的限流状态，由{@link LogMetadata}缓存
+     *
+     * @param module
+     * @return
+     */
+    ModuleState module(String module) {
+        return modules.computeIfAbsent(module, m -> new ModuleState(m, rateLimit));
+    }
+
+    /**
+     * 是否输出本次调用的文本日志
+     *
+     * @param metadata
+     * @param costTime 用时（毫秒）
+     * @param success
+     * @return
+     */
+    boolean shouldLog(LogMetadata metadata, long costTime, boolean success) {
+        if (!success) {
+            return true;
+        }
+        if (metadata.getSlowThreshold() >= 0 && costTime >= metadata.getSlowThreshold()) {
+            return true;
+        }
+        ModuleState state = metadata.getModuleState();
+        double sampleRate = metadata.getSampleRate();
+        if ((sampleRate >= 1D || ThreadLocalRandom.current().nextDouble() < sampleRate)
+                && (state.bucket == null || state.bucket.tryAcquire())) {
+            return true;
+        }
+        state.suppressed.increment();
+        return false;
+    }
+
+    /**
+     * 输出各模块被抑制的日志数量
+     */
+    private void summary() {
+        for (ModuleState state : modules.values()) {
+            long suppressed = state.suppressed.sumThenReset();
+            if (suppressed > 0) {
+                logger.info("日志采样，模块：{}，最近{}秒未记录{}条", state.module, summaryInterval, suppressed);
+            }
+        }
+    }
+
+    /**
+     * 模块的限流状态
+     */
+    static final class ModuleState {
+        private final String module;
+        /**
+         * 不限流时为null
+         */
+        private final TokenBucket bucket;
+        private final LongAdder suppressed = new LongAdder();
+
+        ModuleState(String module, int rateLimit) {
+            this.module = module;
+            this.bucket = rateLimit > 0 ? new TokenBucket(rateLimit) : null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.log;
+
+/**
+ * 操作日志
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class OperationLog {
+    /**
+     * 模块名称
+     */
+    private final String module;
+    /**
+     * 接口名称
+     */
+    private final String info;
+    /**
+     * 方法，类名#方法名
+     */
+    private final String method;
+    /**
+     * 用时（毫秒）
+     */
+    private final long costTime;
+    /**
+     * 是否执行成功
+     */
+    private final boolean success;
+    /**
+     * 创建时间
+     */
+    private final long createTime;
+    /**
+     * 参数，未序列化，由日志写入线程序列化
+     */
+    private final Object[] args;
+    /**
+     * 返回值，未序列化
+     */
+    private final Object result;
+
+    public OperationLog(String module, String info, String method, long costTime, boolean success, long createTime) {
+        this(module, info, method, costTime, success, createTime, null, null);
+    }
+
+    public OperationLog(String module, String info, String method, long costTime, boolean success, long createTime,
+                        Object[] args, Object result) {
+        this.module = module;
+        this.info = info;
+        this.method = method;
+        this.costTime = costTime;
+        this.success = success;
+        this.createTime = createTime;
+        this.args = args;
+        this.result = result;
+    }
+
+    public String getModule() {
+        return module;
+    }
+
+    public String getInfo() {
+        return info;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getCostTime() {
+        return costTime;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,180 @@
+package org.example.log;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 操作日志异步批量入库
+ * <p>
+ * 请求线程只把日志放入环形缓冲区，不访问数据库；后台写入线程批量取出，用一条多行INSERT写入，
+ * 一批日志只需要一次数据库往返。缓冲区满时按{@link OverflowPolicy}丢弃或短暂等待，数据库故障时这一批日志丢弃，
+ * 不会拖慢请求
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+public class OperationLogWriter {
+    private static final Logger logger = LoggerFactory.getLogger(OperationLogWriter.class);
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO operation_log (module, info, method, cost_time, success, create_time, params, result) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 8;
+    /**
+     * block策略下两次检查之间的等待时间（纳秒）
+     */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    @Value("${log.persist.buffer-size:8192}")
+    private int bufferSize;
+    @Value("${log.persist.batch-size:200}")
+    private int batchSize;
+    @Value("${log.persist.flush-interval:200}")
+    private long flushInterval;
+    @Value("${log.persist.overflow-policy:drop}")
+    private OverflowPolicy overflowPolicy;
+    @Value("${log.persist.block-timeout:10}")
+    private long blockTimeout;
+    /**
+     * 参数、返回值序列化后的最大字节数，超过时截断
+     */
+    @Value("${log.capture.max-bytes:2048}")
+    private int captureMaxBytes;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private LogRingBuffer<OperationLog> buffer;
+    /**
+     * 只在写入线程中使用
+     */
+    private LogPayloadSerializer payloadSerializer;
+    /**
+     * 整批插入的SQL，批量大小固定时复用
+     */
+    private String fullBatchSql;
+    /**
+     * 缓冲区满被丢弃的日志数量
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread worker;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void start() {
+        buffer = new LogRingBuffer<>(bufferSize);
+        payloadSerializer = new LogPayloadSerializer(objectMapper, captureMaxBytes);
+        fullBatchSql = insertSql(batchSize);
+        worker = new Thread(this::run, "operation-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 停止前把缓冲区中剩余的日志写完
+     *
+     * @throws InterruptedException
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(worker);
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * 提交日志，请求线程调用
+     *
+     * @param operationLog
+     */
+    public void write(OperationLog operationLog) {
+        if (buffer.offer(operationLog)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeout);
+            while (System.nanoTime() < deadline) {
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                if (buffer.offer(operationLog)) {
+                    return;
+                }
+            }
+        }
+        dropped.incrementAndGet();
+    }
+
+    private void run() {
+        List<OperationLog> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            int count = buffer.drain(batch, batchSize);
+            if (count > 0) {
+                flush(batch);
+                batch.clear();
+            }
+            long droppedCount = dropped.getAndSet(0L);
+            if (droppedCount > 0) {
+                logger.warn("操作日志缓冲区已满，丢弃{}条", droppedCount);
+            }
+            if (count < batchSize && running) {
+                //不满一批说明缓冲区已取空，等待下一个刷新周期
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushInterval));
+            }
+        }
+    }
+
+    /**
+     * 一条多行INSERT写入一批日志
+     *
+     * @param batch
+     */
+    private void flush(List<OperationLog> batch) {
+        Object[] args = new Object[batch.size() * COLUMNS];
+        int i = 0;
+        for (OperationLog operationLog : batch) {
+            args[i++] = operationLog.getModule();
+            args[i++] = operationLog.getInfo();
+            args[i++] = operationLog.getMethod();
+            args[i++] = operationLog.getCostTime();
+            args[i++] = operationLog.isSuccess();
+            args[i++] = new Timestamp(operationLog.getCreateTime());
+            args[i++] = payloadSerializer.serializeArgs(operationLog.getArgs());
+            args[i++] = payloadSerializer.serializeResult(operationLog.getResult());
+        }
+        String sql = batch.size() == batchSize ? fullBatchSql : insertSql(batch.size());
+        try {
+            jdbcTemplate.update(sql, args);
+        } catch (Exception e) {
+            logger.warn("操作日志入库失败，丢弃{}条", batch.size(), e);
+        }
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW_PLACEHOLDER.length() + 2));
+        sql.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(ROW_PLACEHOLDER);
+        }
+        return sql.toString();
+    }
+}
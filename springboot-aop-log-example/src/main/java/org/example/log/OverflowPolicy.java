@@ -0,0 +1,18 @@
+package org.example.log;
+
+/**
+ * 日志缓冲区满时的策略
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public enum OverflowPolicy {
+    /**
+     * 直接丢弃，请求线程不等待
+     */
+    DROP,
+    /**
+     * 等待写入线程腾出空间，超过等待时间仍满则丢弃
+     */
+    BLOCK
+}
@@ -0,0 +1,52 @@
+package org.example.log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ * <p>
+ * 不保存令牌数量，只保存下一个令牌的理论发放时间（GCRA算法），一次CAS完成取令牌；
+ * 桶容量等于每秒发放的令牌数，空闲一段时间后最多允许1秒的突发
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+final class TokenBucket {
+    /**
+     * 两个令牌的间隔（纳秒）
+     */
+    private final long interval;
+    /**
+     * 允许提前发放的时间，即突发容量
+     */
+    private final long burst;
+    private final AtomicLong nextTime = new AtomicLong(System.nanoTime());
+
+    /**
+     * @param permitsPerSecond 每秒发放的令牌数，必须大于0
+     */
+    TokenBucket(int permitsPerSecond) {
+        this.interval = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.burst = interval * (permitsPerSecond - 1);
+    }
+
+    /**
+     * 尝试取一个令牌，不等待
+     *
+     * @return
+     */
+    boolean tryAcquire() {
+        long now = System.nanoTime();
+        while (true) {
+            long next = nextTime.get();
+            long base = Math.max(next, now);
+            if (base - now > burst) {
+                return false;
+            }
+            if (nextTime.compareAndSet(next, base + interval)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+CREATE TABLE `operation_log`
+(
+    `id`          bigint       NOT NULL AUTO_INCREMENT,
+    `module`      varchar(64)  NOT NULL COMMENT '模块名称',
+    `info`        varchar(255) NOT NULL COMMENT '接口名称',
+    `method`      varchar(255) NOT NULL COMMENT '方法',
+    `cost_time`   bigint       NOT NULL COMMENT '用时（毫秒）',
+    `success`     tinyint(1)   NOT NULL COMMENT '是否执行成功',
+    `create_time` datetime(3)  NOT NULL COMMENT '创建时间',
+    `params`      text COMMENT '参数',
+    `result`      text COMMENT '返回值',
+    PRIMARY KEY (`id`),
+    KEY `idx_create_time` (`create_time`)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT ='操作日志';
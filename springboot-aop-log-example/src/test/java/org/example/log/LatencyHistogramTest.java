@@ -0,0 +1,94 @@
+package org.example.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 耗时直方图精度测试
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class LatencyHistogramTest {
+    /**
+     * 每个2的幂区间32个子桶，取桶中间值，相对误差不超过1/64，留一些余量
+     */
+    private static final double MAX_ERROR = 1D / 32;
+
+    @Test
+    public void bucketValueIsCloseToRecordedValue() {
+        for (long value = 0; value < 32; value++) {
+            assertEquals(value, LatencyHistogram.valueOf(LatencyHistogram.index(value)));
+        }
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            long value = 32 + (long) (Math.pow(10, random.nextDouble() * 15));
+            long bucket = LatencyHistogram.valueOf(LatencyHistogram.index(value));
+            assertTrue(Math.abs(bucket - value) <= value * MAX_ERROR, value + " -> " + bucket);
+        }
+        long max = LatencyHistogram.valueOf(LatencyHistogram.index(Long.MAX_VALUE));
+        assertTrue(max > 0L);
+    }
+
+    @Test
+    public void uniformPercentiles() {
+        LatencyHistogram histogram = histogram();
+        //1微秒到100毫秒均匀分布
+        for (long micros = 1; micros <= 100000; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(100000L, snapshot.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), snapshot.getMax());
+        for (double percentile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            long expected = TimeUnit.MICROSECONDS.toNanos((long) Math.ceil(percentile * 100000));
+            assertClose(expected, snapshot.percentile(percentile));
+        }
+        //最大值精确记录，百分位不会超过最大值
+        assertTrue(snapshot.percentile(1D) <= snapshot.getMax());
+        assertClose(snapshot.getMax(), snapshot.percentile(1D));
+    }
+
+    @Test
+    public void skewedPercentilesMatchExactValues() {
+        LatencyHistogram histogram = histogram();
+        Random random = new Random(7);
+        long[] values = new long[200000];
+        for (int i = 0; i < values.length; i++) {
+            //指数分布，均值2毫秒，长尾
+            values[i] = (long) (-Math.log(1 - random.nextDouble()) * 2000000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        for (double percentile : new double[]{0.5, 0.75, 0.9, 0.99, 0.999}) {
+            long expected = values[(int) Math.ceil(percentile * values.length) - 1];
+            assertClose(expected, snapshot.percentile(percentile));
+        }
+    }
+
+    @Test
+    public void emptyAndNegative() {
+        LatencyHistogram histogram = histogram();
+        assertEquals(0L, histogram.snapshot().percentile(0.99));
+        //时钟回拨等情况下的负数按0记录
+        histogram.record(-5L);
+        assertEquals(1L, histogram.snapshot().getCount());
+        assertEquals(0L, histogram.snapshot().percentile(0.99));
+    }
+
+    private static LatencyHistogram histogram() {
+        //单个窗口足够长，测试期间不会滚动
+        return new LatencyHistogram("test", "test", TimeUnit.HOURS.toNanos(1), 2);
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected * MAX_ERROR, "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.log;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 缓冲区满时的丢弃、等待策略测试，不启动写入线程，不需要数据库
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class OperationLogWriterTest {
+    private OperationLogWriter writer;
+    private LogRingBuffer<OperationLog> buffer;
+
+    @BeforeEach
+    public void setUp() {
+        writer = new OperationLogWriter();
+        buffer = new LogRingBuffer<>(2);
+        ReflectionTestUtils.setField(writer, "buffer", buffer);
+        ReflectionTestUtils.setField(writer, "blockTimeout", 200L);
+    }
+
+    @Test
+    public void dropPolicyDiscardsWhenFull() {
+        ReflectionTestUtils.setField(writer, "overflowPolicy", OverflowPolicy.DROP);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            writer.write(log(i));
+        }
+        //不等待写入线程
+        assertTrue(System.nanoTime() - start < 100_000_000L);
+        assertEquals(3L, dropped());
+        assertEquals(2, drain().size());
+    }
+
+    @Test
+    public void blockPolicyWaitsForSpace() throws InterruptedException {
+        ReflectionTestUtils.setField(writer, "overflowPolicy", OverflowPolicy.BLOCK);
+        writer.write(log(0));
+        writer.write(log(1));
+        List<OperationLog> drained = new ArrayList<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(20L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            buffer.drain(drained, 1);
+        });
+        consumer.start();
+        writer.write(log(2));
+        consumer.join();
+        assertEquals(0L, dropped());
+        assertEquals(1, drained.size());
+        assertEquals(2, drain().size());
+    }
+
+    @Test
+    public void blockPolicyDropsAfterTimeout() {
+        ReflectionTestUtils.setField(writer, "overflowPolicy", OverflowPolicy.BLOCK);
+        ReflectionTestUtils.setField(writer, "blockTimeout", 20L);
+        writer.write(log(0));
+        writer.write(log(1));
+        long start = System.nanoTime();
+        writer.write(log(2));
+        assertTrue(System.nanoTime() - start >= 20_000_000L);
+        assertEquals(1L, dropped());
+    }
+
+    private long dropped() {
+        return ((AtomicLong) ReflectionTestUtils.getField(writer, "dropped")).get();
+    }
+
+    private List<OperationLog> drain() {
+        List<OperationLog> drained = new ArrayList<>();
+        buffer.drain(drained, 10);
+        return drained;
+    }
+
+    private static OperationLog log(int i) {
+        return new OperationLog("test", "info" + i, "method", 1L, true, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.log.benchmark;
+
+import ch.qos.logback.classic.Level;
+import org.example.common.trace.SpanExporter;
+import org.example.common.trace.Tracer;
+import org.example.log.LatencyRecorder;
+import org.example.log.Log;
+import org.example.log.LogAspect;
+import org.example.log.LogSampler;
+import org.example.log.OperationLog;
+import org.example.log.OperationLogWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LogAspect#logAround}的开销，对比有无注解元数据缓存
+ * <p>
+ * 不缓存时每次调用前清空切面的元数据缓存，相当于每次都反射读取注解、拼接字符串、查找直方图。
+ * 采样率为0，文本日志不输出；操作日志写入使用空实现，只测量切面本身
+ * <pre>
+ * mvn test-compile
+ * java -cp target/test-classes:依赖 org.example.log.benchmark.LogAspectBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogAspectBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private AnnotationConfigApplicationContext context;
+    private Target target;
+    private Map<?, ?> metadataCache;
+
+    @Setup
+    public void setUp() {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        context = new AnnotationConfigApplicationContext();
+        context.register(BenchmarkConfig.class);
+        //直接注册，不经过依赖注入，也不启动写入线程
+        context.getBeanFactory().registerSingleton("operationLogWriter", new NoopOperationLogWriter());
+        context.refresh();
+        target = context.getBean(Target.class);
+        metadataCache = (Map<?, ?>) ReflectionTestUtils.getField(context.getBean(LogAspect.class), "metadataCache");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object logAround() {
+        if (!cached) {
+            metadataCache.clear();
+        }
+        return target.call("value");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LogAspectBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * 被切面拦截的业务
+     */
+    public static class Target {
+        @Log(module = "基准测试", info = "logAround", sampleRate = 0D)
+        public Object call(String value) {
+            return value;
+        }
+    }
+
+    /**
+     * 丢弃操作日志，只测量切面本身
+     */
+    static class NoopOperationLogWriter extends OperationLogWriter {
+        @Override
+        public void write(OperationLog operationLog) {
+        }
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    static class BenchmarkConfig {
+        @Bean
+        public Target target() {
+            return new Target();
+        }
+
+        @Bean
+        public LogAspect logAspect() {
+            return new LogAspect();
+        }
+
+        @Bean
+        public LatencyRecorder latencyRecorder() {
+            return new LatencyRecorder();
+        }
+
+        @Bean
+        public LogSampler logSampler() {
+            return new LogSampler();
+        }
+
+        @Bean
+        public Tracer tracer() {
+            return new Tracer();
+        }
+
+        @Bean
+        public SpanExporter spanExporter() {
+            return root -> {
+            };
+        }
+    }
+}
@@ -4,19 +4,20 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.EnableCaching;
+import org.example.common.serializer.KryoRedisSerializer;
+import org.example.lock.LockReleaseSubscriber;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.cache.RedisCacheConfiguration;
-import org.springframework.data.redis.cache.RedisCacheManager;
-import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
-
-import java.time.Duration;
+import org.springframework.util.ClassUtils;
 
 /**
  * redis配置
@@ -27,29 +28,81 @@ import java.time.Duration;
 @Configuration
 public class RedisConfig {
 
+    /**
+     * 值序列化方式：jackson（默认）、kryo
+     */
+    @Value("${redis.serializer:jackson}")
+    private String serializer;
+    /**
+     * kryo额外注册的类名，所有节点顺序必须一致
+     */
+    @Value("${redis.kryo.classes:}")
+    private String[] kryoClasses;
+
     @Bean
-    @SuppressWarnings("all")
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory) {
         RedisTemplate<String, Object> template = new RedisTemplate<String, Object>();
-        ObjectMapper objectMapper = new ObjectMapper();
         template.setConnectionFactory(factory);
-        Jackson2JsonRedisSerializer jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer(Object.class);
-        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        //漏洞风险  已过时 用activateDefaultTyping替换
-        //objectMapper.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
-        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
-        jackson2JsonRedisSerializer.setObjectMapper(objectMapper);
+        RedisSerializer<Object> valueSerializer = "kryo".equals(serializer)
+                ? kryoRedisSerializer() : jackson2JsonRedisSerializer();
         StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
         // key采用String的序列化方式
         template.setKeySerializer(stringRedisSerializer);
         // hash的key也采用String的序列化方式
         template.setHashKeySerializer(stringRedisSerializer);
-        // value序列化方式采用jackson
-        template.setValueSerializer(jackson2JsonRedisSerializer);
-        // hash的value序列化方式采用jackson
-        template.setHashValueSerializer(jackson2JsonRedisSerializer);
+        // value序列化方式
+        template.setValueSerializer(valueSerializer);
+        // hash的value序列化方式
+        template.setHashValueSerializer(valueSerializer);
         template.afterPropertiesSet();
         return template;
     }
 
+    /**
+     * kryo序列化，只能读写注册过的类
+     *
+     * @return
+     */
+    private RedisSerializer<Object> kryoRedisSerializer() {
+        Class<?>[] classes = new Class<?>[kryoClasses.length];
+        for (int i = 0; i < kryoClasses.length; i++) {
+            classes[i] = ClassUtils.resolveClassName(kryoClasses[i].trim(), ClassUtils.getDefaultClassLoader());
+        }
+        return new KryoRedisSerializer(1024, classes);
+    }
+
+    /**
+     * jackson序列化，每个值都带有类名，体积较大
+     *
+     * @return
+     */
+    @SuppressWarnings("all")
+    private RedisSerializer<Object> jackson2JsonRedisSerializer() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Jackson2JsonRedisSerializer jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer(Object.class);
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        //漏洞风险  已过时 用activateDefaultTyping替换
+        //objectMapper.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
+        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        jackson2JsonRedisSerializer.setObjectMapper(objectMapper);
+        return jackson2JsonRedisSerializer;
+    }
+
+    /**
+     * 订阅锁释放通知，只有redis后端需要
+     *
+     * @param factory
+     * @param lockReleaseSubscriber
+     * @return
+     */
+    @Bean
+    @ConditionalOnProperty(name = "lock.provider", havingValue = "redis", matchIfMissing = true)
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory,
+                                                                       LockReleaseSubscriber lockReleaseSubscriber) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(lockReleaseSubscriber, new PatternTopic(LockReleaseSubscriber.CHANNEL_PREFIX + "*"));
+        return container;
+    }
+
 }
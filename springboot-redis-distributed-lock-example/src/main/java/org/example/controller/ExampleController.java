@@ -24,4 +24,45 @@ public class ExampleController {
         exampleService.testLock();
         return ResultEntity.ok();
     }
+
+    @GetMapping("/key")
+    public ResultEntity testKeyLock(String orderId) {
+        exampleService.testKeyLock(orderId);
+        return ResultEntity.ok();
+    }
+
+    @GetMapping("/transfer")
+    public ResultEntity testMultiLock(String from, String to) {
+        exampleService.testMultiLock(from, to);
+        return ResultEntity.ok();
+    }
+
+    @GetMapping("/read")
+    public ResultEntity testReadLock() {
+        exampleService.testReadLock();
+        return ResultEntity.ok();
+    }
+
+    @GetMapping("/write")
+    public ResultEntity testWriteLock() {
+        exampleService.testWriteLock();
+        return ResultEntity.ok();
+    }
+
+    @GetMapping("/wait")
+    public ResultEntity testWaitLock() {
+        exampleService.testWaitLock();
+        return ResultEntity.ok();
+    }
+
+    @GetMapping("/watchdog")
+    public ResultEntity testWatchdogLock() {
+        exampleService.testWatchdogLock();
+        return ResultEntity.ok();
+    }
+
+    @GetMapping("/fencing")
+    public ResultEntity testFencingLock(String orderId) {
+        return ResultEntity.ok(exampleService.testFencingLock(orderId));
+    }
 }
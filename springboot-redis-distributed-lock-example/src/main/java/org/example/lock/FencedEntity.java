@@ -0,0 +1,30 @@
+package org.example.lock;
+
+import javax.persistence.Column;
+import javax.persistence.MappedSuperclass;
+
+/**
+ * 需要令牌保护的entity公共父类
+ * <p>
+ * 令牌列只由{@link FencingTokenGuard}的条件更新修改，entity本身更新时不写入，
+ * 避免内存中的旧令牌覆盖数据库中更新的令牌
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@MappedSuperclass
+public abstract class FencedEntity {
+    /**
+     * 最近一次写入的令牌
+     */
+    @Column(name = "fencing_token", updatable = false)
+    private Long fencingToken;
+
+    public Long getFencingToken() {
+        return fencingToken;
+    }
+
+    public void setFencingToken(Long fencingToken) {
+        this.fencingToken = fencingToken;
+    }
+}
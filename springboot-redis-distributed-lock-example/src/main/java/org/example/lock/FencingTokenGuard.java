@@ -0,0 +1,88 @@
+package org.example.lock;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 令牌校验
+ * <p>
+ * 在写入entity的同一事务中调用，执行一条条件更新：只有当前令牌不小于该行已记录的令牌时才推进令牌，否则说明锁已被
+ * 其他持有者获取并写入过，抛出{@link StaleFencingTokenException}使事务回滚。条件更新会锁住该行直到事务结束，
+ * 校验和写入之间不会插入其他持有者的写入。同一持有者多次写入令牌相同，可以重复通过
+ * <pre>
+ * &#64;Lock(lockKey = "'order:' + #orderId")
+ * &#64;Transactional
+ * public void pay(Long orderId) {
+ *     fencingTokenGuard.check(OrderEntity.class, orderId);
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@ConditionalOnClass(name = "org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean")
+public class FencingTokenGuard {
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    /**
+     * entity类型 -> 条件更新语句
+     */
+    private final ConcurrentHashMap<Class<?>, String> statements = new ConcurrentHashMap<>();
+
+    /**
+     * 使用当前线程最近获取的锁的令牌校验
+     *
+     * @param entityClass
+     * @param id
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void check(Class<? extends FencedEntity> entityClass, Object id) {
+        check(entityClass, id, LockContext.getFencingToken());
+    }
+
+    /**
+     * 校验并推进令牌，该行不存在时同样视为校验失败
+     *
+     * @param entityClass
+     * @param id
+     * @param token
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void check(Class<? extends FencedEntity> entityClass, Object id, long token) {
+        int updated = entityManager.createQuery(statements.computeIfAbsent(entityClass, this::statement))
+                .setParameter("id", id)
+                .setParameter("token", token)
+                .executeUpdate();
+        if (updated == 0) {
+            throw new StaleFencingTokenException("Stale fencing token [" + token + "] for "
+                    + entityClass.getSimpleName() + " [" + id + "]");
+        }
+    }
+
+    private String statement(Class<?> entityClass) {
+        EntityType<?> entityType = entityManager.getMetamodel().entity(entityClass);
+        String idName = null;
+        for (SingularAttribute<?, ?> attribute : entityType.getSingularAttributes()) {
+            if (attribute.isId()) {
+                idName = attribute.getName();
+            }
+        }
+        if (idName == null) {
+            throw new IllegalArgumentException("Entity [" + entityClass.getName() + "] has no single id attribute");
+        }
+        return "update " + entityType.getName() + " e set e.fencingToken = :token where e." + idName
+                + " = :id and (e.fencingToken is null or e.fencingToken <= :token)";
+    }
+}
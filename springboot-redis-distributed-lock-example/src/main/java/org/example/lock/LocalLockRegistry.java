@@ -0,0 +1,147 @@
+package org.example.lock;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 节点内本地锁
+ * <p>
+ * 同一节点上竞争同一把分布式锁的线程先竞争本地锁，只有拿到本地锁的线程才去redis获取分布式锁，
+ * 其余线程在本地等待，不会产生redis请求。读锁之间在本地也是共享的。本地锁按锁KEY引用计数，没有线程使用时自动移除
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+public class LocalLockRegistry {
+
+    private final ConcurrentHashMap<String, LocalLock> locks = new ConcurrentHashMap<>();
+
+    /**
+     * 获取锁KEY对应的本地锁并增加引用
+     *
+     * @param lockKey
+     * @return
+     */
+    public LocalLock obtain(String lockKey) {
+        return locks.compute(lockKey, (k, local) -> {
+            if (local == null) {
+                local = new LocalLock(k);
+            }
+            local.refs++;
+            return local;
+        });
+    }
+
+    /**
+     * 减少引用，最后一个使用者离开时移除
+     *
+     * @param local
+     * @return 移除时还未被领取的交接租约，需要调用方释放；否则返回null
+     */
+    public String release(LocalLock local) {
+        boolean[] removed = new boolean[1];
+        locks.computeIfPresent(local.lockKey, (k, current) -> {
+            if (--current.refs == 0) {
+                removed[0] = true;
+                return null;
+            }
+            return current;
+        });
+        if (removed[0]) {
+            return local.takeHandoff();
+        }
+        return null;
+    }
+
+    /**
+     * 本地锁
+     */
+    public static class LocalLock {
+        private final String lockKey;
+        /**
+         * 非公平模式下队列头部是写锁时新的读锁也会等待，本地同样是写锁优先
+         */
+        private final QueueAwareLock lock = new QueueAwareLock();
+        /**
+         * 只在ConcurrentHashMap#compute中修改
+         */
+        private int refs;
+        /**
+         * 上一个持有者交接给本地等待线程的分布式锁的值；多个读锁线程可能同时领取，只有一个能拿到
+         */
+        private final AtomicReference<String> handoffValue = new AtomicReference<>();
+
+        LocalLock(String lockKey) {
+            this.lockKey = lockKey;
+        }
+
+        /**
+         * 获取本地锁
+         *
+         * @param waitTime 毫秒，小于等于0时不等待
+         * @param shared   是否为共享锁（读锁）
+         * @return
+         * @throws InterruptedException
+         */
+        public boolean tryLock(long waitTime, boolean shared) throws InterruptedException {
+            if (shared) {
+                return waitTime > 0 ? lock.readLock().tryLock(waitTime, TimeUnit.MILLISECONDS) : lock.readLock().tryLock();
+            }
+            return waitTime > 0 ? lock.writeLock().tryLock(waitTime, TimeUnit.MILLISECONDS) : lock.writeLock().tryLock();
+        }
+
+        /**
+         * 释放本地锁
+         *
+         * @param shared 是否为共享锁（读锁）
+         */
+        public void unlock(boolean shared) {
+            if (shared) {
+                lock.readLock().unlock();
+            } else {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * 是否有本地线程在等待写锁，只有写锁线程能领取交接的分布式锁
+         *
+         * @return
+         */
+        public boolean hasQueuedWriters() {
+            return lock.hasQueuedWriters();
+        }
+
+        /**
+         * 领取交接的分布式锁，需持有本地锁
+         *
+         * @return
+         */
+        public String takeHandoff() {
+            return handoffValue.getAndSet(null);
+        }
+
+        /**
+         * 把分布式锁交接给本地等待线程，需持有本地锁
+         *
+         * @param value
+         */
+        public void handoff(String value) {
+            handoffValue.set(value);
+        }
+    }
+
+    /**
+     * 公开等待写锁的线程，{@link ReentrantReadWriteLock#hasQueuedThreads()}把等待读锁的线程也算在内
+     */
+    private static final class QueueAwareLock extends ReentrantReadWriteLock {
+        boolean hasQueuedWriters() {
+            return !getQueuedWriterThreads().isEmpty();
+        }
+    }
+}
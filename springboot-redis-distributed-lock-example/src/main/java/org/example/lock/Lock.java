@@ -4,6 +4,7 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 分布式锁
@@ -15,7 +16,7 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Lock {
     /**
-     * 分布式锁KEY
+     * 分布式锁KEY，包含#时作为SpEL表达式解析，可以引用方法参数，如：'order:' + #orderId
      *
      * @return
      */
@@ -27,4 +28,48 @@ public @interface Lock {
      * @return
      */
     long expire() default 30L;
+
+    /**
+     * 获取锁失败时最长等待时间，默认不等待直接失败
+     *
+     * @return
+     */
+    long waitTime() default 0L;
+
+    /**
+     * expire和waitTime的时间单位
+     *
+     * @return
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 等待策略，waitTime大于0时生效
+     *
+     * @return
+     */
+    WaitStrategy waitStrategy() default WaitStrategy.SUBSCRIBE;
+
+    /**
+     * 锁模式，同一个KEY可以在不同方法上分别使用读锁和写锁
+     *
+     * @return
+     */
+    LockMode mode() default LockMode.EXCLUSIVE;
+
+    /**
+     * 是否开启看门狗，开启后业务执行期间会按有效时间的1/3自动续期，
+     * 可以设置较短的有效时间，节点宕机后锁能尽快释放
+     *
+     * @return
+     */
+    boolean watchdog() default false;
+
+    /**
+     * 释放锁时如果本节点还有线程在等待同一把锁，是否直接把redis中的锁交接给它而不释放，
+     * 可以省去释放和重新竞争的redis请求，但会让其他节点更难抢到锁；读锁不支持交接
+     *
+     * @return
+     */
+    boolean handoff() default false;
 }
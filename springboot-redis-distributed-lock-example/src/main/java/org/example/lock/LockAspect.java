@@ -6,15 +6,22 @@ import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.example.common.exception.BusinessException;
+import org.example.common.trace.Span;
+import org.example.common.trace.Tracer;
+import org.example.lock.metrics.LockMetrics;
+import org.example.lock.provider.LockProvider;
+import org.example.lock.provider.LockResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.Ordered;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Component;
 
 import java.lang.reflect.Method;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -28,44 +35,256 @@ import java.util.concurrent.TimeUnit;
 public class LockAspect implements Ordered {
     private static final Logger log = LoggerFactory.getLogger(LockAspect.class);
     /**
-     * 键名前缀
+     * 退避重试的最小、最大间隔（毫秒）
      */
-    private static final String DISTRIBUTED_LOCK_PREFIX = "DistributedLock:";
+    private static final long MIN_BACKOFF = 10L;
+    private static final long MAX_BACKOFF = 500L;
+    /**
+     * 调用链中等待本地锁、获取分布式锁的span名称
+     */
+    private static final String LOCAL_WAIT_SPAN = "lock.local";
+    private static final String ACQUIRE_SPAN = "lock.acquire";
+    /**
+     * 锁的存储后端，由lock.provider配置选择
+     */
+    @Autowired
+    LockProvider lockProvider;
+
+    @Autowired
+    LockWatchdog lockWatchdog;
+
+    @Autowired
+    LockReleaseSubscriber lockReleaseSubscriber;
+
+    @Autowired
+    LockKeyResolver lockKeyResolver;
+
+    @Autowired
+    LocalLockRegistry localLockRegistry;
 
     @Autowired
-    RedisTemplate<String, Object> redisTemplate;
+    LockMetrics lockMetrics;
+
+    /**
+     * 没有开启跟踪（trace.enabled）时使用空实现
+     */
+    @Autowired(required = false)
+    Tracer tracer = Tracer.NOOP;
+
+    /**
+     * 方法 -> 注解元数据，第一次调用时解析，之后不再反射读取注解
+     */
+    private final ConcurrentHashMap<Method, LockMetadata> lockMetadata = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Method, MultiLockMetadata> multiLockMetadata = new ConcurrentHashMap<>();
 
     @Pointcut("@annotation(org.example.lock.Lock)")
     public void distributedLock() {
     }
 
+    @Pointcut("@annotation(org.example.lock.MultiLock)")
+    public void distributedMultiLock() {
+    }
+
     @Around("distributedLock()")
     public Object distributedLockAround(ProceedingJoinPoint joinPoint) throws Throwable {
         MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
         Method method = methodSignature.getMethod();
-        Lock lock = method.getAnnotation(Lock.class);
-        String lockKey = lock.lockKey();
-        long expire = lock.expire();
-        //生成一个唯一值uuid
-        String uuid = uuid();
-        //尝试获取锁
-        boolean lockFlag = tryLock(lockKey, uuid, expire);
-        if (lockFlag) {
-            log.info("开始获取分布式锁，lockKey：[{}]，value：[{}]", lockKey, uuid);
+        LockMetadata metadata = lockMetadata.get(method);
+        if (metadata == null) {
+            metadata = lockMetadata.computeIfAbsent(method, LockMetadata::new);
+        }
+        Lock lock = metadata.lock;
+        String lockKey = lockKeyResolver.resolve(method, lock.lockKey(), joinPoint.getArgs());
+        long expire = metadata.expire;
+        long waitTime = metadata.waitTime;
+        boolean shared = metadata.shared;
+        //当前线程已持有该锁，直接重入，不需要请求redis
+        if (LockOwner.reenter(lockKey, shared)) {
             try {
-                //获取到锁，继续执行业务
                 return joinPoint.proceed();
+            } finally {
+                LockOwner.exit(lockKey);
+            }
+        }
+        LockMetrics.Sample sample = lockMetrics.start(lockKey);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTime);
+        //同一节点的线程先竞争本地锁，拿到本地锁的线程才去redis竞争分布式锁
+        LocalLockRegistry.LocalLock localLock = localLockRegistry.obtain(lockKey);
+        try (Span span = tracer.startSpan(metadata.spanName, lockKey)) {
+            try {
+                boolean localLocked;
+                try (Span ignored = tracer.startSpan(LOCAL_WAIT_SPAN)) {
+                    localLocked = localLock.tryLock(waitTime, shared);
+                }
+                if (!localLocked) {
+                    //获取本地锁失败，说明本节点已有线程持有或正在竞争，不再请求redis
+                    log.info("获取本地锁失败，lockKey：[{}]", lockKey);
+                    sample.failed();
+                    throw new BusinessException("Distributed Lock Error, LockKey is [" + lockKey + "]");
+                }
+                try {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    return proceedWithLock(joinPoint, metadata, localLock, sample, lockKey, expire, remaining);
+                } finally {
+                    localLock.unlock(shared);
+                }
             } catch (Throwable e) {
+                span.error();
                 throw e;
-            } finally {
-                //释放分布式锁
-                log.info("释放分布式锁，lockKey：[{}]，value：[{}]", lockKey, uuid);
-                unlock(lockKey, uuid);
             }
+        } finally {
+            String handoff = localLockRegistry.release(localLock);
+            if (handoff != null) {
+                //交接的分布式锁没有线程领取（等待线程已超时），直接释放
+                log.info("释放未领取的分布式锁，lockKey：[{}]，owner：[{}]", lockKey, handoff);
+                unlock(lockKey, handoff, expire);
+            }
+        }
+    }
+
+    /**
+     * 持有本地锁后获取分布式锁并执行业务
+     *
+     * @param joinPoint
+     * @param metadata
+     * @param localLock
+     * @param sample
+     * @param lockKey
+     * @param expire
+     * @param waitTime
+     * @return
+     * @throws Throwable
+     */
+    private Object proceedWithLock(ProceedingJoinPoint joinPoint, LockMetadata metadata,
+                                   LocalLockRegistry.LocalLock localLock, LockMetrics.Sample sample,
+                                   String lockKey, long expire, long waitTime) throws Throwable {
+        //当前线程的持有者标识
+        String owner = LockOwner.current();
+        Lock lock = metadata.lock;
+        boolean shared = metadata.shared;
+        //优先领取上一个本地持有者交接的分布式锁，交接成功说明锁仍属于本节点，省去一次竞争
+        String handoff = localLock.takeHandoff();
+        if (handoff != null && shared) {
+            //交接的是写锁，读锁不能领取；先释放，否则读锁会一直等待这把已经没有人使用的写锁
+            unlock(lockKey, handoff, expire);
+            handoff = null;
+        }
+        Long token;
+        LockResult result = null;
+        try (Span ignored = tracer.startSpan(ACQUIRE_SPAN)) {
+            token = handoff == null ? null : lockProvider.transfer(lockKey, handoff, owner, expire);
+            if (token == null) {
+                //尝试获取锁
+                result = lock(lockKey, owner, expire, waitTime, lock.waitStrategy(), lock.mode());
+            }
+        }
+        if (token != null) {
+            log.info("领取本地交接的分布式锁，lockKey：[{}]，owner：[{}]", lockKey, owner);
         } else {
-            //获取分布式锁失败
-            log.info("获取分布式锁失败，lockKey：[{}]，value：[{}]", lockKey, uuid);
-            throw new BusinessException("Distributed Lock Error, LockKey is [" + lockKey + "]");
+            if (!result.isAcquired()) {
+                //获取分布式锁失败
+                log.info("获取分布式锁失败，lockKey：[{}]，owner：[{}]", lockKey, owner);
+                sample.failed();
+                throw new BusinessException("Distributed Lock Error, LockKey is [" + lockKey + "]");
+            }
+            token = result.getToken();
+            log.info("开始获取分布式锁，lockKey：[{}]，owner：[{}]，token：[{}]", lockKey, owner, token);
+        }
+        sample.acquired();
+        LockOwner.hold(lockKey, shared, token);
+        //开启看门狗则自动续期，直到业务执行完成
+        LockLease lease = lock.watchdog() ? lockWatchdog.register(lockKey, owner, expire) : null;
+        try {
+            //获取到锁，继续执行业务
+            return joinPoint.proceed();
+        } finally {
+            LockOwner.exit(lockKey);
+            if (lease != null) {
+                lockWatchdog.cancel(lease);
+            }
+            if (lock.handoff() && !shared && localLock.hasQueuedWriters()) {
+                //本地还有线程在等待写锁，直接把分布式锁交接过去，不释放；只有读锁在等待时正常释放
+                log.info("交接分布式锁给本地等待线程，lockKey：[{}]，owner：[{}]", lockKey, owner);
+                localLock.handoff(owner);
+                sample.released(true);
+            } else {
+                //释放分布式锁
+                log.info("释放分布式锁，lockKey：[{}]，owner：[{}]", lockKey, owner);
+                sample.released(unlock(lockKey, owner, expire));
+            }
+        }
+    }
+
+    @Around("distributedMultiLock()")
+    public Object distributedMultiLockAround(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
+        Method method = methodSignature.getMethod();
+        MultiLockMetadata metadata = multiLockMetadata.get(method);
+        if (metadata == null) {
+            metadata = multiLockMetadata.computeIfAbsent(method, MultiLockMetadata::new);
+        }
+        MultiLock multiLock = metadata.multiLock;
+        //KEY已去重并排序，保证所有节点、所有线程按相同顺序加锁
+        List<String> lockKeys = lockKeyResolver.resolveAll(method, multiLock.lockKeys(), joinPoint.getArgs());
+        long expire = metadata.expire;
+        long waitTime = metadata.waitTime;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTime);
+        //当前线程已持有的KEY直接重入，其余KEY需要获取
+        List<String> reentered = new ArrayList<>();
+        List<String> acquireKeys = new ArrayList<>();
+        for (String lockKey : lockKeys) {
+            if (LockOwner.reenter(lockKey, false)) {
+                reentered.add(lockKey);
+            } else {
+                acquireKeys.add(lockKey);
+            }
+        }
+        List<LockMetrics.Sample> samples = new ArrayList<>(acquireKeys.size());
+        for (String lockKey : acquireKeys) {
+            samples.add(lockMetrics.start(lockKey));
+        }
+        List<LocalLockRegistry.LocalLock> localLocks = new ArrayList<>(acquireKeys.size());
+        int locked = 0;
+        Span span = tracer.startSpan(metadata.spanName);
+        try {
+            //按顺序获取本地锁
+            try (Span ignored = tracer.startSpan(LOCAL_WAIT_SPAN)) {
+                for (String lockKey : acquireKeys) {
+                    LocalLockRegistry.LocalLock localLock = localLockRegistry.obtain(lockKey);
+                    localLocks.add(localLock);
+                    if (!localLock.tryLock(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), false)) {
+                        log.info("获取本地锁失败，lockKey：[{}]", lockKey);
+                        samples.forEach(LockMetrics.Sample::failed);
+                        throw new BusinessException("Distributed Lock Error, LockKey is [" + lockKey + "]");
+                    }
+                    locked++;
+                    //批量锁不领取交接的锁，直接释放后统一获取
+                    String handoff = localLock.takeHandoff();
+                    if (handoff != null) {
+                        unlock(lockKey, handoff, expire);
+                    }
+                }
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            return proceedWithMultiLock(joinPoint, multiLock, acquireKeys, samples, expire, remaining);
+        } catch (Throwable e) {
+            span.error();
+            throw e;
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                localLocks.get(i).unlock(false);
+            }
+            for (int i = 0; i < localLocks.size(); i++) {
+                String handoff = localLockRegistry.release(localLocks.get(i));
+                if (handoff != null) {
+                    unlock(acquireKeys.get(i), handoff, expire);
+                }
+            }
+            for (String lockKey : reentered) {
+                LockOwner.exit(lockKey);
+            }
+            span.close();
         }
     }
 
@@ -80,48 +299,218 @@ public class LockAspect implements Ordered {
     }
 
     /**
-     * 获取锁
+     * 持有本地锁后一次性获取全部分布式锁并执行业务
      *
-     * @param lockKey
-     * @param value
+     * @param joinPoint
+     * @param multiLock
+     * @param lockKeys
+     * @param samples
      * @param expire
+     * @param waitTime
      * @return
+     * @throws Throwable
      */
-    private boolean tryLock(String lockKey, String value, long expire) {
-        return redisTemplate.opsForValue().setIfAbsent(getKey(lockKey), value, expire, TimeUnit.SECONDS);
+    private Object proceedWithMultiLock(ProceedingJoinPoint joinPoint, MultiLock multiLock, List<String> lockKeys,
+                                        List<LockMetrics.Sample> samples, long expire, long waitTime) throws Throwable {
+        if (lockKeys.isEmpty()) {
+            //全部KEY都是重入
+            return joinPoint.proceed();
+        }
+        String owner = LockOwner.current();
+        LockResult result;
+        try (Span ignored = tracer.startSpan(ACQUIRE_SPAN)) {
+            result = multiLock(lockKeys, owner, expire, waitTime);
+        }
+        if (!result.isAcquired()) {
+            log.info("批量获取分布式锁失败，lockKeys：{}，owner：[{}]", lockKeys, owner);
+            samples.forEach(LockMetrics.Sample::failed);
+            throw new BusinessException("Distributed Lock Error, LockKeys are " + lockKeys);
+        }
+        log.info("开始批量获取分布式锁，lockKeys：{}，owner：[{}]", lockKeys, owner);
+        samples.forEach(LockMetrics.Sample::acquired);
+        List<LockLease> leases = new ArrayList<>(lockKeys.size());
+        long[] tokens = result.getTokens();
+        for (int i = 0; i < tokens.length; i++) {
+            String lockKey = lockKeys.get(i);
+            LockOwner.hold(lockKey, false, tokens[i]);
+            if (multiLock.watchdog()) {
+                leases.add(lockWatchdog.register(lockKey, owner, expire));
+            }
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            for (String lockKey : lockKeys) {
+                LockOwner.exit(lockKey);
+            }
+            for (LockLease lease : leases) {
+                lockWatchdog.cancel(lease);
+            }
+            log.info("批量释放分布式锁，lockKeys：{}，owner：[{}]", lockKeys, owner);
+            boolean owned = multiUnlock(lockKeys, owner, expire);
+            for (LockMetrics.Sample sample : samples) {
+                sample.released(owned);
+            }
+        }
     }
 
     /**
-     * 释放锁
+     * 获取锁，失败后在waitTime内等待重试
      *
      * @param lockKey
-     * @param value
+     * @param owner
+     * @param expire
+     * @param waitTime
+     * @param waitStrategy
+     * @param mode
+     * @return
+     * @throws InterruptedException
      */
-    private void unlock(String lockKey, String value) {
-        String key = getKey(lockKey);
-        Object obj = redisTemplate.opsForValue().get(key);
-        if (obj != null && value.equals(obj.toString())) {
-            //删除
-            redisTemplate.delete(key);
+    private LockResult lock(String lockKey, String owner, long expire, long waitTime, WaitStrategy waitStrategy,
+                            LockMode mode) throws InterruptedException {
+        LockResult result = lockProvider.tryLock(lockKey, owner, expire, mode, waitTime);
+        if (result.isAcquired() || waitTime <= 0) {
+            return result;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTime);
+        //先登记等待再重试，避免重试失败到开始等待之间错过释放通知
+        LockReleaseSubscriber.Waiter waiter = waitStrategy == WaitStrategy.SUBSCRIBE
+                ? lockReleaseSubscriber.subscribe(lockKey) : null;
+        try {
+            long backoff = MIN_BACKOFF;
+            while (true) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                result = lockProvider.tryLock(lockKey, owner, expire, mode, remaining);
+                if (result.isAcquired()) {
+                    return result;
+                }
+                remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return result;
+                }
+                if (waiter != null) {
+                    //等待释放通知，锁过期不会有通知，所以最长等到锁过期
+                    long ttl = result.getTtl();
+                    waiter.await(Math.min(remaining, ttl > 0 ? ttl : MIN_BACKOFF));
+                } else {
+                    //退避加随机抖动，避免多个节点同时重试
+                    Thread.sleep(Math.min(remaining, backoff + ThreadLocalRandom.current().nextLong(backoff)));
+                    backoff = Math.min(backoff * 2, MAX_BACKOFF);
+                }
+            }
+        } finally {
+            if (waiter != null) {
+                lockReleaseSubscriber.unsubscribe(waiter);
+            }
         }
     }
 
     /**
-     * 获取键
+     * 原子获取全部锁，失败后在waitTime内按退避间隔重试；
+     * 批量锁涉及多个释放通知频道，不订阅通知，每次最长等到被占用锁的剩余有效时间
      *
-     * @param lockKey
+     * @param lockKeys
+     * @param owner
+     * @param expire
+     * @param waitTime
      * @return
+     * @throws InterruptedException
      */
-    private String getKey(String lockKey) {
-        return DISTRIBUTED_LOCK_PREFIX + lockKey;
+    private LockResult multiLock(List<String> lockKeys, String owner, long expire, long waitTime)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitTime);
+        long backoff = MIN_BACKOFF;
+        while (true) {
+            LockResult result = lockProvider.tryLockAll(lockKeys, owner, expire);
+            if (result.isAcquired()) {
+                return result;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return result;
+            }
+            long ttl = result.getTtl();
+            long wait = Math.min(remaining, backoff + ThreadLocalRandom.current().nextLong(backoff));
+            Thread.sleep(ttl > 0 ? Math.min(wait, ttl) : wait);
+            backoff = Math.min(backoff * 2, MAX_BACKOFF);
+        }
     }
 
     /**
-     * uuid
+     * 批量释放锁
      *
-     * @return
+     * @param lockKeys
+     * @param owner
+     * @param expire
+     * @return 锁是否都仍属于当前持有者
      */
-    private String uuid() {
-        return UUID.randomUUID().toString().replace("-", "");
+    private boolean multiUnlock(List<String> lockKeys, String owner, long expire) {
+        boolean owned = lockProvider.unlockAll(lockKeys, owner, expire);
+        if (!owned) {
+            log.warn("批量释放分布式锁时部分锁已不属于当前持有者，lockKeys：{}，owner：[{}]", lockKeys, owner);
+        }
+        return owned;
+    }
+
+    /**
+     * 释放锁，比较持有者、重入次数减1，减到0时删除
+     *
+     * @param lockKey
+     * @param owner
+     * @param expire
+     * @return 锁是否仍属于当前持有者
+     */
+    private boolean unlock(String lockKey, String owner, long expire) {
+        boolean owned = lockProvider.unlock(lockKey, owner, expire);
+        if (!owned) {
+            //锁已过期或已被其他节点持有，不做删除
+            log.warn("释放分布式锁时锁已不属于当前持有者，lockKey：[{}]，owner：[{}]", lockKey, owner);
+        }
+        return owned;
+    }
+
+    /**
+     * @Lock注解元数据
+     */
+    private static final class LockMetadata {
+        private final Lock lock;
+        /**
+         * 毫秒
+         */
+        private final long expire;
+        private final long waitTime;
+        private final boolean shared;
+        /**
+         * 调用链中的span名称
+         */
+        private final String spanName;
+
+        LockMetadata(Method method) {
+            this.lock = method.getAnnotation(Lock.class);
+            this.expire = lock.timeUnit().toMillis(lock.expire());
+            this.waitTime = lock.timeUnit().toMillis(lock.waitTime());
+            this.shared = lock.mode() == LockMode.READ;
+            this.spanName = "lock " + method.getDeclaringClass().getSimpleName() + "#" + method.getName();
+        }
+    }
+
+    /**
+     * @MultiLock注解元数据
+     */
+    private static final class MultiLockMetadata {
+        private final MultiLock multiLock;
+        /**
+         * 毫秒
+         */
+        private final long expire;
+        private final long waitTime;
+        private final String spanName;
+
+        MultiLockMetadata(Method method) {
+            this.multiLock = method.getAnnotation(MultiLock.class);
+            this.expire = multiLock.timeUnit().toMillis(multiLock.expire());
+            this.waitTime = multiLock.timeUnit().toMillis(multiLock.waitTime());
+            this.spanName = "multilock " + method.getDeclaringClass().getSimpleName() + "#" + method.getName();
+        }
     }
 }
@@ -0,0 +1,44 @@
+package org.example.lock;
+
+/**
+ * 当前线程持有的锁信息，供加锁方法内部使用
+ * <p>
+ * 锁过期后原持有者可能还在执行（GC停顿、网络延迟等），此时其他节点已拿到锁，两边会同时写入。
+ * 独占锁和写锁每次换持有者都会发放单调递增的令牌（fencing token），写入时带上令牌，
+ * 由下游拒绝比已见过的令牌更小的写入（见{@link FencingTokenGuard}），即使锁过期也不会被旧持有者覆盖
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public final class LockContext {
+
+    private LockContext() {
+    }
+
+    /**
+     * 当前线程持有的指定锁的令牌，读锁为0
+     *
+     * @param lockKey 解析后的锁KEY
+     * @return
+     */
+    public static long getFencingToken(String lockKey) {
+        Long token = LockOwner.token(lockKey);
+        if (token == null) {
+            throw new IllegalStateException("Lock is not held by current thread, LockKey is [" + lockKey + "]");
+        }
+        return token;
+    }
+
+    /**
+     * 当前线程最近获取的锁的令牌，方法只加了一把锁时使用
+     *
+     * @return
+     */
+    public static long getFencingToken() {
+        Long token = LockOwner.lastToken();
+        if (token == null) {
+            throw new IllegalStateException("No lock is held by current thread");
+        }
+        return token;
+    }
+}
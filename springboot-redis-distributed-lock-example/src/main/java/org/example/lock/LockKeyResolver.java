@@ -0,0 +1,153 @@
+package org.example.lock;
+
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ObjectUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 锁KEY解析
+ * <p>
+ * lockKey中包含#时作为SpEL表达式解析，可以引用方法参数，如：'order:' + #order.id，否则原样作为KEY；
+ * 表达式和参数名按方法缓存，只在第一次调用时解析，表达式达到调用阈值后会被编译成字节码
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+public class LockKeyResolver {
+    /**
+     * 表达式标记
+     */
+    private static final String EXPRESSION_MARK = "#";
+
+    private final SpelExpressionParser parser = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, LockKeyResolver.class.getClassLoader()));
+
+    private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+    private final ConcurrentHashMap<Method, KeyTemplate> templates = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<Method, KeyTemplate[]> multiTemplates = new ConcurrentHashMap<>();
+
+    /**
+     * 解析锁KEY
+     *
+     * @param method
+     * @param lockKey
+     * @param args
+     * @return
+     */
+    public String resolve(Method method, String lockKey, Object[] args) {
+        KeyTemplate template = templates.get(method);
+        if (template == null) {
+            template = templates.computeIfAbsent(method, m -> parse(m, lockKey));
+        }
+        return template.evaluate(args).toString();
+    }
+
+    /**
+     * 解析多个锁KEY，表达式结果为集合或数组时展开，结果去重并按字典序排序
+     *
+     * @param method
+     * @param lockKeys
+     * @param args
+     * @return
+     */
+    public List<String> resolveAll(Method method, String[] lockKeys, Object[] args) {
+        KeyTemplate[] templates = multiTemplates.get(method);
+        if (templates == null) {
+            templates = multiTemplates.computeIfAbsent(method, m -> {
+                KeyTemplate[] parsed = new KeyTemplate[lockKeys.length];
+                for (int i = 0; i < lockKeys.length; i++) {
+                    parsed[i] = parse(m, lockKeys[i]);
+                }
+                return parsed;
+            });
+        }
+        TreeSet<String> keys = new TreeSet<>();
+        for (KeyTemplate template : templates) {
+            Object key = template.evaluate(args);
+            if (key instanceof Collection) {
+                for (Object element : (Collection<?>) key) {
+                    keys.add(String.valueOf(element));
+                }
+            } else if (key.getClass().isArray()) {
+                for (Object element : ObjectUtils.toObjectArray(key)) {
+                    keys.add(String.valueOf(element));
+                }
+            } else {
+                keys.add(key.toString());
+            }
+        }
+        return new ArrayList<>(keys);
+    }
+
+    /**
+     * 解析KEY模板
+     *
+     * @param method
+     * @param lockKey
+     * @return
+     */
+    private KeyTemplate parse(Method method, String lockKey) {
+        if (!lockKey.contains(EXPRESSION_MARK)) {
+            return new KeyTemplate(lockKey, null, null, null);
+        }
+        String[] parameterNames = parameterNameDiscoverer.getParameterNames(method);
+        String[] indexNames = new String[method.getParameterCount()];
+        for (int i = 0; i < indexNames.length; i++) {
+            indexNames[i] = "p" + i;
+        }
+        return new KeyTemplate(lockKey, parser.parseExpression(lockKey), parameterNames, indexNames);
+    }
+
+    /**
+     * KEY模板
+     */
+    private static class KeyTemplate {
+        private final String lockKey;
+        private final Expression expression;
+        private final String[] parameterNames;
+        private final String[] indexNames;
+
+        KeyTemplate(String lockKey, Expression expression, String[] parameterNames, String[] indexNames) {
+            this.lockKey = lockKey;
+            this.expression = expression;
+            this.parameterNames = parameterNames;
+            this.indexNames = indexNames;
+        }
+
+        Object evaluate(Object[] args) {
+            if (expression == null) {
+                return lockKey;
+            }
+            EvaluationContext context = new StandardEvaluationContext();
+            for (int i = 0; i < args.length; i++) {
+                //参数名获取不到时（未开启-g或-parameters编译）仍可以用#p0、#p1引用
+                context.setVariable(indexNames[i], args[i]);
+                if (parameterNames != null) {
+                    context.setVariable(parameterNames[i], args[i]);
+                }
+            }
+            Object key = expression.getValue(context);
+            if (key == null) {
+                throw new IllegalArgumentException("Lock key expression [" + lockKey + "] evaluated to null");
+            }
+            return key;
+        }
+    }
+}
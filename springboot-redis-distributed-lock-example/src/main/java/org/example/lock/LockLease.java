@@ -0,0 +1,66 @@
+package org.example.lock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 看门狗续期的租约
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class LockLease {
+    /**
+     * 续期间隔为有效时间的几分之一
+     */
+    private static final int RENEW_RATIO = 3;
+
+    private final String lockKey;
+    private final String owner;
+    private final long expire;
+    private final long renewIntervalNanos;
+    private volatile long nextRenewTime;
+
+    LockLease(String lockKey, String owner, long expire) {
+        this.lockKey = lockKey;
+        this.owner = owner;
+        this.expire = expire;
+        this.renewIntervalNanos = TimeUnit.MILLISECONDS.toNanos(expire / RENEW_RATIO);
+        this.nextRenewTime = System.nanoTime() + renewIntervalNanos;
+    }
+
+    public String getLockKey() {
+        return lockKey;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * 有效时间（毫秒）
+     *
+     * @return
+     */
+    public long getExpire() {
+        return expire;
+    }
+
+    /**
+     * 是否到了续期时间
+     *
+     * @param now
+     * @return
+     */
+    boolean isDue(long now) {
+        return now - nextRenewTime >= 0;
+    }
+
+    /**
+     * 续期成功后计算下次续期时间
+     *
+     * @param now
+     */
+    void renewed(long now) {
+        nextRenewTime = now + renewIntervalNanos;
+    }
+}
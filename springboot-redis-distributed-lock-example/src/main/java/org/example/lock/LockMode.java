@@ -0,0 +1,22 @@
+package org.example.lock;
+
+/**
+ * 锁模式
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public enum LockMode {
+    /**
+     * 独占锁
+     */
+    EXCLUSIVE,
+    /**
+     * 读锁，多个读锁之间共享，与写锁互斥
+     */
+    READ,
+    /**
+     * 写锁，与读锁、写锁都互斥；写锁等待期间新的读锁不能加入，避免写锁饥饿
+     */
+    WRITE
+}
@@ -0,0 +1,125 @@
+package org.example.lock;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 锁持有者
+ * <p>
+ * 持有者标识为节点ID加线程ID，同一线程在同一节点上标识不变；
+ * 同时在本地记录当前线程已持有的锁、重入次数及令牌，嵌套获取同一把锁时不需要请求redis
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+final class LockOwner {
+    /**
+     * 节点ID，每次启动生成
+     */
+    private static final String NODE_ID = UUID.randomUUID().toString().replace("-", "");
+
+    private static final ThreadLocal<String> OWNER =
+            ThreadLocal.withInitial(() -> NODE_ID + ":" + Thread.currentThread().getId());
+
+    /**
+     * 当前线程持有的锁KEY -> 持有情况，按获取顺序排列
+     */
+    private static final ThreadLocal<Map<String, Hold>> HELD = ThreadLocal.withInitial(LinkedHashMap::new);
+
+    private LockOwner() {
+    }
+
+    /**
+     * 当前线程的持有者标识
+     *
+     * @return
+     */
+    static String current() {
+        return OWNER.get();
+    }
+
+    /**
+     * 当前线程已持有该锁时重入次数加1，持有写锁（或独占锁）时可以再获取读锁，持有读锁时不能升级为写锁
+     *
+     * @param lockKey
+     * @param shared  是否为共享锁（读锁）
+     * @return 是否已持有
+     */
+    static boolean reenter(String lockKey, boolean shared) {
+        Hold hold = HELD.get().get(lockKey);
+        if (hold == null) {
+            return false;
+        }
+        if (hold.shared && !shared) {
+            //升级需要等待其他读锁释放，而其他读锁可能也在等待升级，会造成死锁
+            throw new IllegalStateException("Read lock cannot be upgraded, LockKey is [" + lockKey + "]");
+        }
+        hold.count++;
+        return true;
+    }
+
+    /**
+     * 记录当前线程首次持有该锁
+     *
+     * @param lockKey
+     * @param shared  是否为共享锁（读锁）
+     * @param token   令牌
+     */
+    static void hold(String lockKey, boolean shared, long token) {
+        HELD.get().put(lockKey, new Hold(shared, token));
+    }
+
+    /**
+     * 当前线程持有的该锁的令牌
+     *
+     * @param lockKey
+     * @return 未持有时返回null
+     */
+    static Long token(String lockKey) {
+        Hold hold = HELD.get().get(lockKey);
+        return hold == null ? null : hold.token;
+    }
+
+    /**
+     * 当前线程最近获取的锁的令牌
+     *
+     * @return 未持有任何锁时返回null
+     */
+    static Long lastToken() {
+        Hold last = null;
+        Iterator<Hold> iterator = HELD.get().values().iterator();
+        while (iterator.hasNext()) {
+            last = iterator.next();
+        }
+        return last == null ? null : last.token;
+    }
+
+    /**
+     * 重入次数减1，减到0时移除
+     *
+     * @param lockKey
+     */
+    static void exit(String lockKey) {
+        Map<String, Hold> held = HELD.get();
+        Hold hold = held.get(lockKey);
+        if (hold != null && --hold.count == 0) {
+            held.remove(lockKey);
+        }
+    }
+
+    /**
+     * 持有情况
+     */
+    private static class Hold {
+        private final boolean shared;
+        private final long token;
+        private int count = 1;
+
+        Hold(boolean shared, long token) {
+            this.shared = shared;
+            this.token = token;
+        }
+    }
+}
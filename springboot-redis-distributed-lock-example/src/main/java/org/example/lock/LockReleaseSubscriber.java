@@ -0,0 +1,102 @@
+package org.example.lock;
+
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 锁释放通知订阅
+ * <p>
+ * 锁被释放时由{@link org.example.lock.provider.LockProvider}通知，唤醒本节点上等待该锁的一个线程。
+ * redis后端下整个节点只订阅一个频道模式，避免每个等待线程各自订阅
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+public class LockReleaseSubscriber implements MessageListener {
+    /**
+     * 锁释放通知频道前缀
+     */
+    public static final String CHANNEL_PREFIX = "DistributedLockChannel:";
+
+    /**
+     * 锁KEY -> 等待者
+     */
+    private final ConcurrentHashMap<String, Waiter> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * 开始等待某把锁的释放通知
+     *
+     * @param lockKey
+     * @return
+     */
+    public Waiter subscribe(String lockKey) {
+        return waiters.compute(lockKey, (k, waiter) -> {
+            if (waiter == null) {
+                waiter = new Waiter(k);
+            }
+            waiter.count++;
+            return waiter;
+        });
+    }
+
+    /**
+     * 结束等待，最后一个等待者离开时移除
+     *
+     * @param waiter
+     */
+    public void unsubscribe(Waiter waiter) {
+        waiters.computeIfPresent(waiter.lockKey, (k, current) -> --current.count == 0 ? null : current);
+    }
+
+    /**
+     * 锁已释放，唤醒一个等待者
+     *
+     * @param lockKey
+     */
+    public void onRelease(String lockKey) {
+        Waiter waiter = waiters.get(lockKey);
+        if (waiter != null) {
+            waiter.semaphore.release();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        onRelease(channel.substring(CHANNEL_PREFIX.length()));
+    }
+
+    /**
+     * 同一把锁的等待者
+     */
+    public static class Waiter {
+        private final String lockKey;
+        private final Semaphore semaphore = new Semaphore(0);
+        /**
+         * 只在ConcurrentHashMap#compute中修改
+         */
+        private int count;
+
+        Waiter(String lockKey) {
+            this.lockKey = lockKey;
+        }
+
+        /**
+         * 等待释放通知
+         *
+         * @param timeoutMillis
+         * @return 是否收到通知
+         * @throws InterruptedException
+         */
+        public boolean await(long timeoutMillis) throws InterruptedException {
+            return semaphore.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package org.example.lock;
+
+import org.example.lock.provider.LockProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式锁看门狗
+ * <p>
+ * 所有开启看门狗的锁共用一个调度线程，每次调度把到期需要续期的锁收集起来，
+ * 交给{@link LockProvider}批量续期（redis下为pipeline执行续期脚本），避免每把锁一个定时器
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+public class LockWatchdog {
+    private static final Logger log = LoggerFactory.getLogger(LockWatchdog.class);
+
+    /**
+     * 调度间隔（毫秒）
+     */
+    @Value("${lock.watchdog.interval:200}")
+    private long interval;
+    /**
+     * 单批最多续期的锁数量
+     */
+    @Value("${lock.watchdog.batch-size:500}")
+    private int batchSize;
+
+    @Autowired
+    LockProvider lockProvider;
+
+    /**
+     * 当前持有的租约
+     */
+    private final Set<LockLease> leases = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lock-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::renewLeases, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 注册租约，由看门狗自动续期
+     *
+     * @param lockKey
+     * @param owner
+     * @param expire  毫秒
+     * @return
+     */
+    public LockLease register(String lockKey, String owner, long expire) {
+        LockLease lease = new LockLease(lockKey, owner, expire);
+        leases.add(lease);
+        return lease;
+    }
+
+    /**
+     * 取消续期
+     *
+     * @param lease
+     */
+    public void cancel(LockLease lease) {
+        leases.remove(lease);
+    }
+
+    /**
+     * 批量续期到期的租约
+     */
+    private void renewLeases() {
+        try {
+            long now = System.nanoTime();
+            List<LockLease> due = new ArrayList<>();
+            for (LockLease lease : leases) {
+                if (lease.isDue(now)) {
+                    due.add(lease);
+                }
+            }
+            for (int from = 0; from < due.size(); from += batchSize) {
+                renew(due.subList(from, Math.min(from + batchSize, due.size())), now);
+            }
+        } catch (Exception e) {
+            //任务抛出异常后调度器会停止调度，这里必须吞掉
+            log.warn("分布式锁续期失败，下次调度重试", e);
+        }
+    }
+
+    /**
+     * 续期一批租约
+     *
+     * @param batch
+     * @param now
+     */
+    private void renew(List<LockLease> batch, long now) {
+        boolean[] renewed = lockProvider.renew(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            LockLease lease = batch.get(i);
+            if (renewed[i]) {
+                lease.renewed(now);
+            } else if (leases.remove(lease)) {
+                //锁已过期或已被其他节点持有，停止续期
+                log.warn("分布式锁续期失败，锁已不属于当前持有者，lockKey：[{}]，owner：[{}]", lease.getLockKey(), lease.getOwner());
+            }
+        }
+    }
+}
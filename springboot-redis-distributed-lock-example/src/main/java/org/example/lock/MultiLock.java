@@ -0,0 +1,53 @@
+package org.example.lock;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量分布式锁，所有KEY一次性原子获取，要么全部成功要么全部失败
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MultiLock {
+    /**
+     * 分布式锁KEY，规则同{@link Lock#lockKey()}，表达式结果为集合或数组时展开为多个KEY，
+     * 所有KEY去重后按字典序排序再获取
+     *
+     * @return
+     */
+    String[] lockKeys();
+
+    /**
+     * 有效时间
+     *
+     * @return
+     */
+    long expire() default 30L;
+
+    /**
+     * 获取锁失败时最长等待时间，默认不等待直接失败，等待期间按退避间隔重试
+     *
+     * @return
+     */
+    long waitTime() default 0L;
+
+    /**
+     * expire和waitTime的时间单位
+     *
+     * @return
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 是否开启看门狗
+     *
+     * @return
+     */
+    boolean watchdog() default false;
+}
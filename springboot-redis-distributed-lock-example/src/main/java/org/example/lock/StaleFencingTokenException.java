@@ -0,0 +1,15 @@
+package org.example.lock;
+
+/**
+ * 令牌已过期，说明锁已被其他持有者获取并写入过，当前写入必须放弃。
+ * 非受检异常，抛出后事务会回滚
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class StaleFencingTokenException extends RuntimeException {
+
+    public StaleFencingTokenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package org.example.lock;
+
+/**
+ * 获取锁失败后的等待策略
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public enum WaitStrategy {
+    /**
+     * 订阅锁释放通知，锁释放后立即被唤醒重试，最长等到锁过期
+     */
+    SUBSCRIBE,
+    /**
+     * 不订阅通知，按指数退避间隔重试
+     */
+    SPIN
+}
@@ -0,0 +1,28 @@
+package org.example.lock.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 热点锁KEY，访问/actuator/lockhotkeys
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@Endpoint(id = "lockhotkeys")
+public class LockHotKeysEndpoint {
+    private static final int DEFAULT_SIZE = 20;
+
+    @Autowired
+    LockMetrics lockMetrics;
+
+    @ReadOperation
+    public List<SpaceSavingSketch.HotKey> hotKeys() {
+        return lockMetrics.hotKeys(DEFAULT_SIZE);
+    }
+}
@@ -0,0 +1,216 @@
+package org.example.lock.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分布式锁指标
+ * <ul>
+ *     <li>distributed.lock.acquire：获取锁耗时（包括本地锁和等待时间）</li>
+ *     <li>distributed.lock.hold：持有锁的时长</li>
+ *     <li>distributed.lock.failures：获取锁失败次数</li>
+ *     <li>distributed.lock.lease.expired：释放时锁已过期或被其他持有者获取的次数，说明过期时间设置得太短</li>
+ * </ul>
+ * 锁KEY通常带业务ID，不能直接作为标签，否则指标数量无限增长。这里用{@link SpaceSavingSketch}统计热点KEY，
+ * 只有出现次数超过阈值的前top-keys个KEY使用自己的标签，其余KEY都记在key=other下；
+ * KEY被挤出统计时同时移除它的指标
+ * <p>
+ * 每个窗口结束时所有计数减半，不再加锁的KEY逐渐冷却，计数低于阈值时移除它的指标，把标签让给新的热点KEY。
+ * 已有指标的KEY加锁时只做一次原子递增和一次map查询，不竞争全局锁；创建、移除指标才加锁
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+public class LockMetrics {
+    private static final String OTHER = "other";
+
+    /**
+     * 单独打标签的热点KEY数量
+     */
+    @Value("${lock.metrics.top-keys:20}")
+    private int topKeys;
+    /**
+     * 成为热点KEY需要的最少出现次数
+     */
+    @Value("${lock.metrics.hot-threshold:10}")
+    private long hotThreshold;
+    /**
+     * 计数衰减周期（秒）
+     */
+    @Value("${lock.metrics.window:60}")
+    private long window;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private SpaceSavingSketch sketch;
+    /**
+     * 锁KEY -> 指标，只在持有自身锁时修改，读取不加锁
+     */
+    private final Map<String, KeyMeters> keyMeters = new ConcurrentHashMap<>();
+    private KeyMeters otherMeters;
+    private AtomicLong nextDecay;
+
+    @PostConstruct
+    public void init() {
+        //多跟踪一些KEY，减少热点KEY被偶发的新KEY挤出
+        sketch = new SpaceSavingSketch(topKeys * 10);
+        otherMeters = new KeyMeters(OTHER);
+        nextDecay = new AtomicLong(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(window));
+    }
+
+    /**
+     * 开始一次加锁，记录热点并返回该KEY的指标
+     *
+     * @param lockKey
+     * @return
+     */
+    public Sample start(String lockKey) {
+        decayIfDue();
+        String evicted = sketch.offer(lockKey);
+        if (evicted != null && keyMeters.containsKey(evicted)) {
+            synchronized (keyMeters) {
+                removeMeters(evicted);
+            }
+        }
+        KeyMeters meters = keyMeters.get(lockKey);
+        if (meters == null && keyMeters.size() < topKeys && sketch.guaranteedCount(lockKey) >= hotThreshold) {
+            meters = addMeters(lockKey);
+        }
+        return new Sample(meters == null ? otherMeters : meters, System.nanoTime());
+    }
+
+    /**
+     * 当前的热点KEY
+     *
+     * @param n
+     * @return
+     */
+    public List<SpaceSavingSketch.HotKey> hotKeys(int n) {
+        return sketch.top(n);
+    }
+
+    /**
+     * 热点已满或已被其他线程创建时返回null或已有的指标
+     *
+     * @param lockKey
+     * @return
+     */
+    private KeyMeters addMeters(String lockKey) {
+        synchronized (keyMeters) {
+            KeyMeters meters = keyMeters.get(lockKey);
+            if (meters == null && keyMeters.size() < topKeys) {
+                meters = new KeyMeters(lockKey);
+                keyMeters.put(lockKey, meters);
+            }
+            return meters;
+        }
+    }
+
+    private void removeMeters(String lockKey) {
+        KeyMeters removed = keyMeters.remove(lockKey);
+        if (removed != null) {
+            removed.remove();
+        }
+    }
+
+    /**
+     * 衰减在加锁时顺带完成，不需要额外的线程；同一周期只有一个线程执行
+     */
+    private void decayIfDue() {
+        long now = System.currentTimeMillis();
+        long next = nextDecay.get();
+        if (now < next || !nextDecay.compareAndSet(next, now + TimeUnit.SECONDS.toMillis(window))) {
+            return;
+        }
+        sketch.halve();
+        synchronized (keyMeters) {
+            for (String key : keyMeters.keySet()) {
+                if (sketch.guaranteedCount(key) < hotThreshold) {
+                    removeMeters(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次加锁的计时
+     */
+    public static class Sample {
+        private final KeyMeters meters;
+        private final long startTime;
+        private long acquiredTime;
+
+        Sample(KeyMeters meters, long startTime) {
+            this.meters = meters;
+            this.startTime = startTime;
+        }
+
+        /**
+         * 获取锁成功
+         */
+        public void acquired() {
+            acquiredTime = System.nanoTime();
+            meters.acquire.record(acquiredTime - startTime, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * 获取锁失败
+         */
+        public void failed() {
+            meters.failures.increment();
+        }
+
+        /**
+         * 释放锁
+         *
+         * @param owned 释放时锁是否仍属于当前持有者
+         */
+        public void released(boolean owned) {
+            meters.hold.record(System.nanoTime() - acquiredTime, TimeUnit.NANOSECONDS);
+            if (!owned) {
+                meters.leaseExpired.increment();
+            }
+        }
+    }
+
+    /**
+     * 一个标签下的全部指标
+     */
+    private class KeyMeters {
+        private final Timer acquire;
+        private final Timer hold;
+        private final Counter failures;
+        private final Counter leaseExpired;
+
+        KeyMeters(String key) {
+            acquire = Timer.builder("distributed.lock.acquire").description("获取锁耗时")
+                    .tag("key", key).register(meterRegistry);
+            hold = Timer.builder("distributed.lock.hold").description("持有锁的时长")
+                    .tag("key", key).register(meterRegistry);
+            failures = Counter.builder("distributed.lock.failures").description("获取锁失败次数")
+                    .tag("key", key).register(meterRegistry);
+            leaseExpired = Counter.builder("distributed.lock.lease.expired").description("释放前锁已过期的次数")
+                    .tag("key", key).register(meterRegistry);
+        }
+
+        void remove() {
+            meterRegistry.remove(acquire);
+            meterRegistry.remove(hold);
+            meterRegistry.remove(failures);
+            meterRegistry.remove(leaseExpired);
+        }
+    }
+}
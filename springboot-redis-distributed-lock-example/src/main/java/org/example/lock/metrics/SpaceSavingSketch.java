@@ -0,0 +1,195 @@
+package org.example.lock.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Space-Saving热点统计
+ * <p>
+ * 最多跟踪capacity个KEY，满了之后新KEY替换计数最小的KEY并继承其计数作为误差，
+ * 所以计数减误差是该KEY出现次数的下限，真正的热点KEY不会被挤出。
+ * <p>
+ * KEY按hash分到多个分段，每段各自统计、各自加锁：已跟踪的KEY直接原子递增计数，不加锁；只有新KEY进入分段时才锁住该分段，
+ * 分段很小，线性查找最小值即可。与分段替换同时发生的递增可能丢失，统计本来就是近似的
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public final class SpaceSavingSketch {
+    /**
+     * 每个分段至少跟踪的KEY数量，容量较小时减少分段数
+     */
+    private static final int MIN_STRIPE_CAPACITY = 8;
+    private static final int MAX_STRIPES = 16;
+
+    private final Stripe[] stripes;
+
+    SpaceSavingSketch(int capacity) {
+        int count = 1;
+        while (count < MAX_STRIPES && capacity / (count * 2) >= MIN_STRIPE_CAPACITY) {
+            count *= 2;
+        }
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            //余数分给前面的分段，总容量不变
+            stripes[i] = new Stripe(Math.max(capacity / count + (i < capacity % count ? 1 : 0), 1));
+        }
+    }
+
+    /**
+     * 记录一次出现
+     *
+     * @param key
+     * @return 被挤出的KEY，没有则返回null
+     */
+    String offer(String key) {
+        return stripe(key).offer(key);
+    }
+
+    /**
+     * 出现次数下限
+     *
+     * @param key
+     * @return 未被跟踪时返回0
+     */
+    long guaranteedCount(String key) {
+        Counter counter = stripe(key).counters.get(key);
+        return counter == null ? 0L : Math.max(counter.count.get() - counter.error, 0L);
+    }
+
+    /**
+     * 所有计数和误差减半，不再出现的KEY逐渐冷却，计数归零后最先被替换
+     */
+    void halve() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (Counter counter : stripe.counters.values()) {
+                    counter.count.updateAndGet(count -> count >>> 1);
+                    counter.error >>>= 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按计数从大到小返回前n个KEY
+     *
+     * @param n
+     * @return
+     */
+    List<HotKey> top(int n) {
+        List<HotKey> result = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            for (Counter counter : stripe.counters.values()) {
+                result.add(new HotKey(counter.key, counter.count.get(), counter.error));
+            }
+        }
+        result.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+        return result.size() > n ? new ArrayList<>(result.subList(0, n)) : result;
+    }
+
+    private Stripe stripe(String key) {
+        int h = key.hashCode();
+        //高位参与计算，与HashMap一致
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * 一个分段，替换只在持有分段锁时进行
+     */
+    private static final class Stripe {
+        private final int capacity;
+        private final ConcurrentHashMap<String, Counter> counters;
+
+        Stripe(int capacity) {
+            this.capacity = capacity;
+            this.counters = new ConcurrentHashMap<>(capacity * 2);
+        }
+
+        String offer(String key) {
+            Counter counter = counters.get(key);
+            if (counter != null) {
+                counter.count.incrementAndGet();
+                return null;
+            }
+            synchronized (this) {
+                counter = counters.get(key);
+                if (counter != null) {
+                    counter.count.incrementAndGet();
+                    return null;
+                }
+                if (counters.size() < capacity) {
+                    counters.put(key, new Counter(key, 1L, 0L));
+                    return null;
+                }
+                Counter min = null;
+                long minCount = Long.MAX_VALUE;
+                for (Counter candidate : counters.values()) {
+                    long count = candidate.count.get();
+                    if (count < minCount) {
+                        min = candidate;
+                        minCount = count;
+                    }
+                }
+                counters.remove(min.key);
+                counters.put(key, new Counter(key, minCount + 1, minCount));
+                return min.key;
+            }
+        }
+    }
+
+    /**
+     * 跟踪中的KEY，计数不加锁递增，误差只在持有分段锁时修改
+     */
+    private static final class Counter {
+        private final String key;
+        private final AtomicLong count;
+        private volatile long error;
+
+        Counter(String key, long count, long error) {
+            this.key = key;
+            this.count = new AtomicLong(count);
+            this.error = error;
+        }
+    }
+
+    /**
+     * 热点KEY
+     */
+    public static class HotKey {
+        private final String key;
+        private final long count;
+        private final long error;
+
+        HotKey(String key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * 估计的出现次数，可能偏大
+         *
+         * @return
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 最大误差
+         *
+         * @return
+         */
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.lock.provider;
+
+import org.example.lock.LockLease;
+import org.example.lock.LockMode;
+
+import java.util.List;
+
+/**
+ * 分布式锁后端
+ * <p>
+ * 锁都是可重入的，持有者由调用方传入；所有时间单位都是毫秒。
+ * 独占锁、写锁每次换持有者都要发放单调递增的令牌（fencing token），重入时返回原令牌。
+ * 锁被完全释放（包括过期）时后端需要通知{@link org.example.lock.LockReleaseSubscriber}唤醒等待者，
+ * 通过配置lock.provider选择实现：redis（默认）、memory
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public interface LockProvider {
+
+    /**
+     * 尝试获取锁
+     *
+     * @param lockKey
+     * @param owner
+     * @param expire
+     * @param mode
+     * @param waitTime 获取失败后还会等待的时间，写锁在此期间阻止新的读锁加入
+     * @return
+     */
+    LockResult tryLock(String lockKey, String owner, long expire, LockMode mode, long waitTime);
+
+    /**
+     * 释放锁，重入次数减1，减到0时释放
+     *
+     * @param lockKey
+     * @param owner
+     * @param expire
+     * @return 锁是否仍属于该持有者，false表示锁已过期或被其他持有者获取
+     */
+    boolean unlock(String lockKey, String owner, long expire);
+
+    /**
+     * 原子地获取全部独占锁，要么全部成功要么全部失败
+     *
+     * @param lockKeys 已排序
+     * @param owner
+     * @param expire
+     * @return 成功时令牌与锁KEY一一对应
+     */
+    LockResult tryLockAll(List<String> lockKeys, String owner, long expire);
+
+    /**
+     * 释放全部锁
+     *
+     * @param lockKeys
+     * @param owner
+     * @param expire
+     * @return 锁是否都仍属于该持有者
+     */
+    boolean unlockAll(List<String> lockKeys, String owner, long expire);
+
+    /**
+     * 把锁从原持有者交接给新持有者，发放新令牌并重置有效时间
+     *
+     * @param lockKey
+     * @param from
+     * @param to
+     * @param expire
+     * @return 交接成功返回新令牌，锁已不属于原持有者返回null
+     */
+    Long transfer(String lockKey, String from, String to, long expire);
+
+    /**
+     * 批量续期
+     *
+     * @param leases
+     * @return 与租约一一对应，false表示锁已不属于该持有者
+     */
+    boolean[] renew(List<LockLease> leases);
+}
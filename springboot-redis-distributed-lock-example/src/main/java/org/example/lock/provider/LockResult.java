@@ -0,0 +1,66 @@
+package org.example.lock.provider;
+
+/**
+ * 获取锁的结果
+ * <p>
+ * 成功时带有令牌（fencing token），令牌单调递增，锁每次换持有者都会发放新令牌，读锁不发放令牌（为0）；
+ * 失败时带有建议的等待时间
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public final class LockResult {
+    private final long[] tokens;
+    private final long ttl;
+
+    private LockResult(long[] tokens, long ttl) {
+        this.tokens = tokens;
+        this.ttl = ttl;
+    }
+
+    /**
+     * 获取成功
+     *
+     * @param tokens 与锁一一对应的令牌
+     * @return
+     */
+    public static LockResult acquired(long... tokens) {
+        return new LockResult(tokens, 0L);
+    }
+
+    /**
+     * 获取失败
+     *
+     * @param ttl 建议的等待时间（毫秒），小于等于0表示未知
+     * @return
+     */
+    public static LockResult failed(long ttl) {
+        return new LockResult(null, ttl);
+    }
+
+    public boolean isAcquired() {
+        return tokens != null;
+    }
+
+    /**
+     * 单把锁的令牌
+     *
+     * @return
+     */
+    public long getToken() {
+        return tokens[0];
+    }
+
+    /**
+     * 批量锁的令牌，与锁KEY一一对应
+     *
+     * @return
+     */
+    public long[] getTokens() {
+        return tokens;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.lock.provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 分布式锁lua脚本
+ * <p>
+ * 启动时通过SCRIPT LOAD预加载，之后直接走EVALSHA，
+ * 若redis重启等原因导致脚本缓存丢失（NOSCRIPT），RedisTemplate会自动回退到EVAL
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "lock.provider", havingValue = "redis", matchIfMissing = true)
+public class LockScripts {
+    private static final Logger log = LoggerFactory.getLogger(LockScripts.class);
+    /**
+     * 获取锁脚本（可重入），成功返回令牌，失败返回-1减去锁的剩余有效时间
+     */
+    public static final RedisScript<Long> LOCK = RedisScript.of(new ClassPathResource("lua/lock.lua"), Long.class);
+    /**
+     * 释放锁脚本，比较持有者、重入次数减1、删除在redis端原子执行，独占锁、读锁、写锁通用
+     */
+    public static final RedisScript<Long> UNLOCK = RedisScript.of(new ClassPathResource("lua/unlock.lua"), Long.class);
+    /**
+     * 续期脚本，比较持有者后再PEXPIRE
+     */
+    public static final RedisScript<Long> RENEW = RedisScript.of(new ClassPathResource("lua/renew.lua"), Long.class);
+    /**
+     * 交接脚本，把锁从原持有者转给新持有者并发放新令牌
+     */
+    public static final RedisScript<Long> TRANSFER = RedisScript.of(new ClassPathResource("lua/transfer.lua"), Long.class);
+
+    /**
+     * 获取读锁脚本
+     */
+    public static final RedisScript<Long> READ_LOCK = RedisScript.of(new ClassPathResource("lua/read_lock.lua"), Long.class);
+    /**
+     * 获取写锁脚本
+     */
+    public static final RedisScript<Long> WRITE_LOCK = RedisScript.of(new ClassPathResource("lua/write_lock.lua"), Long.class);
+    /**
+     * 批量获取锁脚本，全部成功或全部失败
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> MULTI_LOCK = RedisScript.of(new ClassPathResource("lua/multi_lock.lua"), List.class);
+    /**
+     * 批量释放锁脚本
+     */
+    public static final RedisScript<Long> MULTI_UNLOCK = RedisScript.of(new ClassPathResource("lua/multi_unlock.lua"), Long.class);
+
+    private static final List<RedisScript<?>> SCRIPTS = Arrays.asList(LOCK, UNLOCK, RENEW, TRANSFER,
+            READ_LOCK, WRITE_LOCK, MULTI_LOCK, MULTI_UNLOCK);
+
+    @Autowired
+    StringRedisTemplate redisTemplate;
+
+    /**
+     * 预加载所有脚本
+     */
+    @PostConstruct
+    public void load() {
+        try {
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                for (RedisScript<?> script : SCRIPTS) {
+                    connection.scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+            log.info("预加载分布式锁脚本完成，共{}个", SCRIPTS.size());
+        } catch (Exception e) {
+            log.warn("预加载分布式锁脚本失败，首次调用时将自动加载", e);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package org.example.lock.provider;
+
+import org.example.lock.LockLease;
+import org.example.lock.LockMode;
+import org.example.lock.LockReleaseSubscriber;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于内存的锁，只在单节点内有效，适合本地开发和测试，不需要redis
+ * <p>
+ * 每把锁的状态都在{@link ConcurrentHashMap#compute}中修改，保证与redis脚本相同的原子性；
+ * 访问时发现过期的锁直接视为不存在，另外由时间轮定时清理过期的锁并通知等待者
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "lock.provider", havingValue = "memory")
+public class MemoryLockProvider implements LockProvider {
+
+    /**
+     * 时间轮刻度（毫秒）
+     */
+    @Value("${lock.memory.tick:100}")
+    private long tick;
+
+    @Autowired
+    LockReleaseSubscriber lockReleaseSubscriber;
+
+    /**
+     * 锁KEY -> 锁状态
+     */
+    private final ConcurrentHashMap<String, LockState> locks = new ConcurrentHashMap<>();
+    /**
+     * 锁KEY -> 写锁等待标记的过期时间
+     */
+    private final ConcurrentHashMap<String, Long> writeWaiting = new ConcurrentHashMap<>();
+    /**
+     * 令牌计数器，所有锁共用
+     */
+    private final AtomicLong fence = new AtomicLong();
+
+    private TimingWheel timingWheel;
+
+    @PostConstruct
+    public void start() {
+        timingWheel = new TimingWheel(tick, 512, "lock-memory-expire");
+        timingWheel.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        timingWheel.stop();
+    }
+
+    @Override
+    public LockResult tryLock(String lockKey, String owner, long expire, LockMode mode, long waitTime) {
+        long now = now();
+        LockResult[] result = new LockResult[1];
+        LockState[] created = new LockState[1];
+        locks.compute(lockKey, (k, state) -> {
+            if (state != null && state.isExpired(now)) {
+                state = null;
+            }
+            if (mode == LockMode.READ) {
+                if (state != null && state.mode != LockMode.READ) {
+                    result[0] = LockResult.failed(state.expireAt - now);
+                    return state;
+                }
+                //有写锁在等待时不允许新的读锁加入，已持有读锁的重入不受限制
+                Long waitingUntil = writeWaiting.get(k);
+                if (waitingUntil != null && waitingUntil > now && (state == null || !state.holders.containsKey(owner))) {
+                    result[0] = LockResult.failed(waitingUntil - now);
+                    return state;
+                }
+                if (state == null) {
+                    state = created[0] = new LockState(LockMode.READ);
+                }
+                state.holders.merge(owner, 1, Integer::sum);
+                state.expireAt = Math.max(state.expireAt, now + expire);
+                //读锁不发放令牌
+                result[0] = LockResult.acquired(0L);
+                return state;
+            }
+            if (state == null) {
+                state = created[0] = new LockState(mode);
+                state.token = fence.incrementAndGet();
+                state.holders.put(owner, 1);
+                state.expireAt = now + expire;
+                if (mode == LockMode.WRITE) {
+                    writeWaiting.remove(k);
+                }
+                result[0] = LockResult.acquired(state.token);
+                return state;
+            }
+            boolean reentrant = mode == LockMode.WRITE ? state.mode == LockMode.WRITE : state.mode != LockMode.READ;
+            if (reentrant && state.holders.containsKey(owner)) {
+                state.holders.merge(owner, 1, Integer::sum);
+                state.expireAt = now + expire;
+                result[0] = LockResult.acquired(state.token);
+                return state;
+            }
+            if (mode == LockMode.WRITE && waitTime > 0) {
+                markWriteWaiting(k, now + waitTime);
+            }
+            result[0] = LockResult.failed(state.expireAt - now);
+            return state;
+        });
+        if (created[0] != null) {
+            scheduleExpire(lockKey, created[0], expire);
+        }
+        return result[0];
+    }
+
+    @Override
+    public boolean unlock(String lockKey, String owner, long expire) {
+        long now = now();
+        boolean[] owned = new boolean[1];
+        boolean[] released = new boolean[1];
+        locks.computeIfPresent(lockKey, (k, state) -> {
+            if (state.isExpired(now) || !state.holders.containsKey(owner)) {
+                return state;
+            }
+            owned[0] = true;
+            int count = state.holders.get(owner) - 1;
+            if (count > 0) {
+                //还有重入，只延长有效时间
+                state.holders.put(owner, count);
+                state.expireAt = Math.max(state.expireAt, now + expire);
+                return state;
+            }
+            state.holders.remove(owner);
+            if (state.holders.isEmpty()) {
+                released[0] = true;
+                return null;
+            }
+            return state;
+        });
+        if (released[0]) {
+            lockReleaseSubscriber.onRelease(lockKey);
+        }
+        return owned[0];
+    }
+
+    /**
+     * 按顺序逐个获取，失败时回滚已获取的锁
+     *
+     * @param lockKeys 已排序
+     * @param owner
+     * @param expire
+     * @return
+     */
+    @Override
+    public LockResult tryLockAll(List<String> lockKeys, String owner, long expire) {
+        long[] tokens = new long[lockKeys.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            LockResult result = tryLock(lockKeys.get(i), owner, expire, LockMode.EXCLUSIVE, 0L);
+            if (!result.isAcquired()) {
+                for (int j = 0; j < i; j++) {
+                    unlock(lockKeys.get(j), owner, expire);
+                }
+                return result;
+            }
+            tokens[i] = result.getToken();
+        }
+        return LockResult.acquired(tokens);
+    }
+
+    @Override
+    public boolean unlockAll(List<String> lockKeys, String owner, long expire) {
+        boolean owned = true;
+        for (String lockKey : lockKeys) {
+            owned &= unlock(lockKey, owner, expire);
+        }
+        return owned;
+    }
+
+    @Override
+    public Long transfer(String lockKey, String from, String to, long expire) {
+        long now = now();
+        Long[] token = new Long[1];
+        locks.computeIfPresent(lockKey, (k, state) -> {
+            if (state.isExpired(now) || !state.holders.containsKey(from)) {
+                return state;
+            }
+            state.holders.put(to, state.holders.remove(from));
+            state.expireAt = now + expire;
+            state.token = fence.incrementAndGet();
+            token[0] = state.token;
+            return state;
+        });
+        return token[0];
+    }
+
+    @Override
+    public boolean[] renew(List<LockLease> leases) {
+        long now = now();
+        boolean[] renewed = new boolean[leases.size()];
+        for (int i = 0; i < renewed.length; i++) {
+            LockLease lease = leases.get(i);
+            boolean[] owned = new boolean[1];
+            locks.computeIfPresent(lease.getLockKey(), (k, state) -> {
+                if (!state.isExpired(now) && state.holders.containsKey(lease.getOwner())) {
+                    state.expireAt = now + lease.getExpire();
+                    owned[0] = true;
+                }
+                return state;
+            });
+            renewed[i] = owned[0];
+        }
+        return renewed;
+    }
+
+    /**
+     * 锁创建时在时间轮上登记一次过期检查，到期时若有效时间已被延长则按剩余时间重新登记
+     *
+     * @param lockKey
+     * @param expected
+     * @param delay
+     */
+    private void scheduleExpire(String lockKey, LockState expected, long delay) {
+        timingWheel.schedule(delay, () -> {
+            long now = now();
+            long[] remaining = new long[1];
+            boolean[] expired = new boolean[1];
+            locks.computeIfPresent(lockKey, (k, state) -> {
+                if (state != expected) {
+                    //锁已被释放后重新获取，由新的状态自己检查
+                    return state;
+                }
+                if (state.isExpired(now)) {
+                    expired[0] = true;
+                    return null;
+                }
+                remaining[0] = state.expireAt - now;
+                return state;
+            });
+            if (expired[0]) {
+                lockReleaseSubscriber.onRelease(lockKey);
+            } else if (remaining[0] > 0) {
+                scheduleExpire(lockKey, expected, remaining[0]);
+            }
+        });
+    }
+
+    /**
+     * 写锁等待标记，到期后由时间轮清理
+     *
+     * @param lockKey
+     * @param waitingUntil
+     */
+    private void markWriteWaiting(String lockKey, long waitingUntil) {
+        Long value = writeWaiting.merge(lockKey, waitingUntil, Math::max);
+        if (value == waitingUntil) {
+            timingWheel.schedule(waitingUntil - now(), () -> writeWaiting.remove(lockKey, value));
+        }
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * 锁状态，只在ConcurrentHashMap#compute中修改
+     */
+    private static class LockState {
+        private final LockMode mode;
+        /**
+         * 持有者 -> 重入次数，读锁可以有多个持有者
+         */
+        private final Map<String, Integer> holders = new HashMap<>(2);
+        private long expireAt;
+        /**
+         * 本次持有的令牌，读锁为0
+         */
+        private long token;
+
+        LockState(LockMode mode) {
+            this.mode = mode;
+        }
+
+        boolean isExpired(long now) {
+            return expireAt <= now;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.example.lock.provider;
+
+import org.example.lock.LockLease;
+import org.example.lock.LockMode;
+import org.example.lock.LockReleaseSubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 基于redis的分布式锁，所有操作都是一次往返的lua脚本
+ * <p>
+ * 一把锁用到的键（锁、写锁等待标记、令牌计数器）都以锁KEY作为hash tag，在redis集群中位于同一个slot，
+ * 脚本不会跨slot；锁KEY中已经带有{@code {tag}}时直接使用，这样多把锁可以通过相同的tag放到同一个slot
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "lock.provider", havingValue = "redis", matchIfMissing = true)
+public class RedisLockProvider implements LockProvider {
+    private static final Logger log = LoggerFactory.getLogger(RedisLockProvider.class);
+    /**
+     * 键名前缀
+     */
+    private static final String DISTRIBUTED_LOCK_PREFIX = "DistributedLock:";
+    /**
+     * 写锁等待标记键名后缀
+     */
+    private static final String WRITE_WAITING_SUFFIX = ":writeWaiting";
+    /**
+     * 令牌计数器前缀，每个锁KEY一个计数器，令牌只需在同一把锁上单调递增；计数器长期不用时过期，重新创建时从当前时间开始
+     */
+    private static final String FENCE_PREFIX = "DistributedLockFence:";
+
+    /**
+     * 令牌计数器有效时间（毫秒），每次发放令牌时重置，应远大于锁的最长有效时间
+     */
+    @Value("${lock.fence.ttl:86400000}")
+    long fenceTtl;
+
+    /**
+     * 锁的值都是字符串，使用StringRedisTemplate保证脚本参数与存储的值字节一致
+     */
+    @Autowired
+    StringRedisTemplate redisTemplate;
+
+    @Autowired
+    LockScripts lockScripts;
+
+    @Override
+    public LockResult tryLock(String lockKey, String owner, long expire, LockMode mode, long waitTime) {
+        Long result;
+        switch (mode) {
+            case READ:
+                result = redisTemplate.execute(LockScripts.READ_LOCK,
+                        Arrays.asList(getKey(lockKey), getWriteWaitingKey(lockKey)), owner, String.valueOf(expire));
+                break;
+            case WRITE:
+                result = redisTemplate.execute(LockScripts.WRITE_LOCK,
+                        Arrays.asList(getKey(lockKey), getWriteWaitingKey(lockKey), getFenceKey(lockKey)), owner,
+                        String.valueOf(expire), String.valueOf(Math.max(waitTime, 0L)), String.valueOf(fenceTtl));
+                break;
+            default:
+                result = redisTemplate.execute(LockScripts.LOCK, Arrays.asList(getKey(lockKey), getFenceKey(lockKey)),
+                        owner, String.valueOf(expire), String.valueOf(fenceTtl));
+        }
+        return toResult(result);
+    }
+
+    @Override
+    public boolean unlock(String lockKey, String owner, long expire) {
+        Long released = redisTemplate.execute(LockScripts.UNLOCK, Collections.singletonList(getKey(lockKey)),
+                owner, String.valueOf(expire), getChannel(lockKey));
+        return released != null && released >= 0L;
+    }
+
+    @Override
+    public LockResult tryLockAll(List<String> lockKeys, String owner, long expire) {
+        List<String> keys = new ArrayList<>(lockKeys.size() * 2);
+        for (String lockKey : lockKeys) {
+            keys.add(getKey(lockKey));
+        }
+        for (String lockKey : lockKeys) {
+            keys.add(getFenceKey(lockKey));
+        }
+        List<?> result = redisTemplate.execute(LockScripts.MULTI_LOCK, keys, owner, String.valueOf(expire),
+                String.valueOf(fenceTtl));
+        if (result == null || result.isEmpty()) {
+            return LockResult.failed(0L);
+        }
+        long first = (Long) result.get(0);
+        if (first < 0L) {
+            return LockResult.failed(-1L - first);
+        }
+        long[] tokens = new long[result.size()];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = (Long) result.get(i);
+        }
+        return LockResult.acquired(tokens);
+    }
+
+    @Override
+    public boolean unlockAll(List<String> lockKeys, String owner, long expire) {
+        List<String> keys = new ArrayList<>(lockKeys.size());
+        List<String> args = new ArrayList<>(lockKeys.size() + 2);
+        args.add(owner);
+        args.add(String.valueOf(expire));
+        for (String lockKey : lockKeys) {
+            keys.add(getKey(lockKey));
+            args.add(getChannel(lockKey));
+        }
+        Long owned = redisTemplate.execute(LockScripts.MULTI_UNLOCK, keys, args.toArray());
+        return owned != null && owned == lockKeys.size();
+    }
+
+    @Override
+    public Long transfer(String lockKey, String from, String to, long expire) {
+        Long token = redisTemplate.execute(LockScripts.TRANSFER, Arrays.asList(getKey(lockKey), getFenceKey(lockKey)),
+                from, to, String.valueOf(expire), String.valueOf(fenceTtl));
+        return token == null || token == 0L ? null : token;
+    }
+
+    /**
+     * pipeline执行续期脚本，脚本已由{@link LockScripts}预加载，若脚本缓存丢失则重新加载后抛出异常，由看门狗下次调度重试
+     *
+     * @param leases
+     * @return
+     */
+    @Override
+    public boolean[] renew(List<LockLease> leases) {
+        String sha = LockScripts.RENEW.getSha1();
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (LockLease lease : leases) {
+                    connection.evalSha(sha, ReturnType.INTEGER, 1,
+                            bytes(getKey(lease.getLockKey())), bytes(lease.getOwner()), bytes(String.valueOf(lease.getExpire())));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("分布式锁批量续期失败，重新加载脚本");
+            lockScripts.load();
+            throw e;
+        }
+        boolean[] renewed = new boolean[leases.size()];
+        for (int i = 0; i < renewed.length; i++) {
+            Object result = results.get(i);
+            renewed[i] = result instanceof Long && (Long) result == 1L;
+        }
+        return renewed;
+    }
+
+    /**
+     * 脚本返回值大于等于0为令牌，小于0为-1减去需要等待的时间
+     *
+     * @param result
+     * @return
+     */
+    private static LockResult toResult(Long result) {
+        if (result == null) {
+            return LockResult.failed(0L);
+        }
+        return result >= 0L ? LockResult.acquired(result) : LockResult.failed(-1L - result);
+    }
+
+    /**
+     * 获取键
+     *
+     * @param lockKey
+     * @return
+     */
+    private String getKey(String lockKey) {
+        return DISTRIBUTED_LOCK_PREFIX + hashTag(lockKey);
+    }
+
+    /**
+     * 获取令牌计数器键
+     *
+     * @param lockKey
+     * @return
+     */
+    private String getFenceKey(String lockKey) {
+        return FENCE_PREFIX + hashTag(lockKey);
+    }
+
+    /**
+     * 锁KEY中没有hash tag时整体作为tag
+     *
+     * @param lockKey
+     * @return
+     */
+    private static String hashTag(String lockKey) {
+        int start = lockKey.indexOf('{');
+        //与redis计算slot的规则一致：第一个{与其后第一个}之间不为空
+        if (start >= 0 && lockKey.indexOf('}', start + 1) > start + 1) {
+            return lockKey;
+        }
+        return "{" + lockKey + "}";
+    }
+
+    /**
+     * 获取写锁等待标记键
+     *
+     * @param lockKey
+     * @return
+     */
+    private String getWriteWaitingKey(String lockKey) {
+        return getKey(lockKey) + WRITE_WAITING_SUFFIX;
+    }
+
+    /**
+     * 获取锁释放通知频道
+     *
+     * @param lockKey
+     * @return
+     */
+    private String getChannel(String lockKey) {
+        return LockReleaseSubscriber.CHANNEL_PREFIX + lockKey;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.lock.provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 时间轮
+ * <p>
+ * 一个工作线程按固定刻度转动，到期任务在工作线程上执行，添加任务是O(1)的。
+ * 新任务先放入无锁队列，由工作线程在每个刻度开始时放入对应的槽，槽只被工作线程访问，不需要加锁。
+ * 任务最多会延迟一个刻度执行
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+class TimingWheel {
+    private static final Logger log = LoggerFactory.getLogger(TimingWheel.class);
+
+    private final long tickMillis;
+    private final int mask;
+    private final Queue<Timeout>[] wheel;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long startTime = System.nanoTime();
+    private final Thread worker;
+    private volatile boolean running = true;
+    /**
+     * 下一个要处理的刻度，只被工作线程修改
+     */
+    private long tick;
+
+    /**
+     * @param tickMillis 刻度（毫秒）
+     * @param wheelSize  槽数量，会向上取整为2的幂
+     * @param threadName
+     */
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, int wheelSize, String threadName) {
+        this.tickMillis = tickMillis;
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.wheel = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.worker = new Thread(this::run, threadName);
+        this.worker.setDaemon(true);
+    }
+
+    void start() {
+        worker.start();
+    }
+
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    /**
+     * 添加任务
+     *
+     * @param delayMillis
+     * @param task
+     */
+    void schedule(long delayMillis, Runnable task) {
+        pending.add(new Timeout(elapsed() + Math.max(delayMillis, 0L), task));
+    }
+
+    private void run() {
+        while (running) {
+            long tickEnd = (tick + 1) * tickMillis;
+            long sleep = tickEnd - elapsed();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                continue;
+            }
+            transferPending();
+            Queue<Timeout> slot = wheel[(int) (tick & mask)];
+            List<Timeout> expired = new ArrayList<>();
+            for (int i = slot.size(); i > 0; i--) {
+                Timeout timeout = slot.poll();
+                if (timeout.deadline < tickEnd) {
+                    expired.add(timeout);
+                } else {
+                    //还没到期（需要多转几圈），放回原槽
+                    slot.add(timeout);
+                }
+            }
+            tick++;
+            for (Timeout timeout : expired) {
+                expire(timeout);
+            }
+        }
+    }
+
+    /**
+     * 把新任务放入对应的槽，已经过了的刻度放入当前刻度
+     */
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            long target = Math.max(timeout.deadline / tickMillis, tick);
+            wheel[(int) (target & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        try {
+            timeout.task.run();
+        } catch (Exception e) {
+            log.warn("时间轮任务执行失败", e);
+        }
+    }
+
+    private long elapsed() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+    private static class Timeout {
+        private final long deadline;
+        private final Runnable task;
+
+        Timeout(long deadline, Runnable task) {
+            this.deadline = deadline;
+            this.task = task;
+        }
+    }
+}
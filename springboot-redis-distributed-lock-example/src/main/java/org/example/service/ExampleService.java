@@ -1,6 +1,9 @@
 package org.example.service;
 
 import org.example.lock.Lock;
+import org.example.lock.LockContext;
+import org.example.lock.LockMode;
+import org.example.lock.MultiLock;
 import org.springframework.stereotype.Service;
 
 /**
@@ -21,4 +24,98 @@ public class ExampleService {
             e.printStackTrace();
         }
     }
+
+    /**
+     * 按订单加锁，不同订单之间互不影响
+     *
+     * @param orderId
+     */
+    @Lock(lockKey = "'order:' + #orderId", expire = 10)
+    public void testKeyLock(String orderId) {
+        try {
+            //睡眠1秒，模拟业务执行时间
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 转账同时锁住转出和转入账户，两把锁一次性获取，无论参数顺序如何都按相同顺序加锁
+     *
+     * @param from
+     * @param to
+     */
+    @MultiLock(lockKeys = {"'account:' + #from", "'account:' + #to"}, expire = 10)
+    public void testMultiLock(String from, String to) {
+        try {
+            //睡眠1秒，模拟业务执行时间
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 读锁，多个节点可以同时读
+     */
+    @Lock(lockKey = "rwKey", expire = 10, waitTime = 5, mode = LockMode.READ)
+    public void testReadLock() {
+        try {
+            //睡眠1秒，模拟业务执行时间
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 写锁，与读锁、写锁互斥
+     */
+    @Lock(lockKey = "rwKey", expire = 10, waitTime = 5, mode = LockMode.WRITE)
+    public void testWriteLock() {
+        try {
+            //睡眠1秒，模拟业务执行时间
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 获取锁失败时最多等待5秒，锁释放后会立即收到通知
+     */
+    @Lock(lockKey = "waitKey", expire = 10, waitTime = 5)
+    public void testWaitLock() {
+        try {
+            //睡眠1秒，模拟业务执行时间
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 业务执行时间超过锁有效时间，由看门狗自动续期
+     */
+    @Lock(lockKey = "watchdogKey", expire = 3, watchdog = true)
+    public void testWatchdogLock() {
+        try {
+            //睡眠10秒，模拟业务执行时间超过有效时间
+            Thread.sleep(10000);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 获取锁的同时得到令牌，写入下游时带上令牌，下游据此拒绝锁过期后旧持有者的写入
+     *
+     * @param orderId
+     * @return 令牌
+     */
+    @Lock(lockKey = "'order:' + #orderId", expire = 10)
+    public long testFencingLock(String orderId) {
+        return LockContext.getFencingToken("order:" + orderId);
+    }
 }
@@ -0,0 +1,34 @@
+-- 获取锁（可重入）：锁是一个hash，field为持有者，value为重入次数，fence字段为本次持有的令牌
+-- 首次获取时从该锁的令牌计数器INCR出新令牌，令牌单调递增，下游据此拒绝已过期持有者的写入；重入时返回原令牌
+-- 计数器每次INCR后重置有效时间，长期不用的锁KEY的计数器会过期
+-- 成功返回令牌（大于0），失败返回-1减去锁的剩余有效时间（毫秒），等待方据此决定最长等待多久
+-- KEYS[1] 锁键名
+-- KEYS[2] 令牌计数器
+-- ARGV[1] 锁持有者
+-- ARGV[2] 有效时间（毫秒）
+-- ARGV[3] 令牌计数器有效时间（毫秒）
+local function next_token(key, ttl)
+    local token
+    if redis.call('exists', key) == 0 then
+        -- 计数器不存在（首次使用或已过期）时从当前时间（微秒）开始，仍大于过期前发放过的令牌
+        local now = redis.call('time')
+        token = redis.call('incrby', key, tonumber(now[1]) * 1000000 + tonumber(now[2]))
+    else
+        token = redis.call('incr', key)
+    end
+    redis.call('pexpire', key, ttl)
+    return token
+end
+if redis.call('exists', KEYS[1]) == 0 then
+    local token = next_token(KEYS[2], ARGV[3])
+    redis.call('hset', KEYS[1], 'fence', token)
+    redis.call('hincrby', KEYS[1], ARGV[1], 1)
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    return token
+end
+if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then
+    redis.call('hincrby', KEYS[1], ARGV[1], 1)
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    return tonumber(redis.call('hget', KEYS[1], 'fence')) or 0
+end
+return -1 - math.max(redis.call('pttl', KEYS[1]), 0)
@@ -0,0 +1,37 @@
+-- 批量获取锁（可重入）：要么全部获取成功，要么一个都不获取
+-- 成功返回与锁一一对应的令牌，失败返回只有一个元素的数组：-1减去第一个被其他持有者占用的锁的剩余有效时间（毫秒）
+-- KEYS[1..n] 锁键名，调用方已排序
+-- KEYS[n+1..2n] 对应的令牌计数器
+-- ARGV[1] 锁持有者
+-- ARGV[2] 有效时间（毫秒）
+-- ARGV[3] 令牌计数器有效时间（毫秒）
+local function next_token(key, ttl)
+    local token
+    if redis.call('exists', key) == 0 then
+        -- 计数器不存在（首次使用或已过期）时从当前时间（微秒）开始，仍大于过期前发放过的令牌
+        local now = redis.call('time')
+        token = redis.call('incrby', key, tonumber(now[1]) * 1000000 + tonumber(now[2]))
+    else
+        token = redis.call('incr', key)
+    end
+    redis.call('pexpire', key, ttl)
+    return token
+end
+local n = #KEYS / 2
+for i = 1, n do
+    if redis.call('exists', KEYS[i]) == 1 and redis.call('hexists', KEYS[i], ARGV[1]) == 0 then
+        return { -1 - math.max(redis.call('pttl', KEYS[i]), 0) }
+    end
+end
+local tokens = {}
+for i = 1, n do
+    if redis.call('hexists', KEYS[i], ARGV[1]) == 0 then
+        tokens[i] = next_token(KEYS[n + i], ARGV[3])
+        redis.call('hset', KEYS[i], 'fence', tokens[i])
+    else
+        tokens[i] = tonumber(redis.call('hget', KEYS[i], 'fence')) or 0
+    end
+    redis.call('hincrby', KEYS[i], ARGV[1], 1)
+    redis.call('pexpire', KEYS[i], ARGV[2])
+end
+return tokens
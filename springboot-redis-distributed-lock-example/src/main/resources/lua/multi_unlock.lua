@@ -0,0 +1,20 @@
+-- 批量释放锁（可重入）：逐个比较持有者、重入次数减1，减到0时删除锁并通知等待的节点
+-- 返回仍属于该持有者的锁数量，小于锁总数说明有锁已过期
+-- KEYS[1..n] 锁键名
+-- ARGV[1] 锁持有者
+-- ARGV[2] 有效时间（毫秒）
+-- ARGV[3..n+2] 对应的锁释放通知频道
+local n = #KEYS
+local owned = 0
+for i = 1, n do
+    if redis.call('hexists', KEYS[i], ARGV[1]) == 1 then
+        if redis.call('hincrby', KEYS[i], ARGV[1], -1) > 0 then
+            redis.call('pexpire', KEYS[i], ARGV[2])
+        else
+            redis.call('del', KEYS[i])
+            redis.call('publish', ARGV[i + 2], 1)
+        end
+        owned = owned + 1
+    end
+end
+return owned
@@ -0,0 +1,21 @@
+-- 获取读锁（可重入）：没有锁或当前是读锁时加入，锁的mode字段标记读写模式
+-- 有写锁在等待时新的读锁不能加入（已持有读锁的重入除外），避免写锁饥饿
+-- 读锁不会写入，不发放令牌：成功返回0，失败返回-1减去需要等待的时间（毫秒）
+-- KEYS[1] 锁键名
+-- KEYS[2] 写锁等待标记
+-- ARGV[1] 锁持有者
+-- ARGV[2] 有效时间（毫秒）
+local mode = redis.call('hget', KEYS[1], 'mode')
+if mode ~= 'read' and redis.call('exists', KEYS[1]) == 1 then
+    return -1 - math.max(redis.call('pttl', KEYS[1]), 0)
+end
+if redis.call('exists', KEYS[2]) == 1 and redis.call('hexists', KEYS[1], ARGV[1]) == 0 then
+    return -1 - math.max(redis.call('pttl', KEYS[2]), 0)
+end
+redis.call('hset', KEYS[1], 'mode', 'read')
+redis.call('hincrby', KEYS[1], ARGV[1], 1)
+-- 多个读锁共享同一个键，有效时间取最长的
+if redis.call('pttl', KEYS[1]) < tonumber(ARGV[2]) then
+    redis.call('pexpire', KEYS[1], ARGV[2])
+end
+return 0
@@ -0,0 +1,8 @@
+-- 续期：只有锁的持有者才能延长锁的有效时间
+-- KEYS[1] 锁键名
+-- ARGV[1] 锁持有者
+-- ARGV[2] 新的有效时间（毫秒）
+if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then
+    return redis.call('pexpire', KEYS[1], ARGV[2])
+end
+return 0
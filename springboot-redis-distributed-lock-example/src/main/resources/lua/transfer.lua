@@ -0,0 +1,30 @@
+-- 交接锁：把锁连同重入次数从原持有者转给新持有者，发放新令牌并重置有效时间
+-- 成功返回新令牌，锁已不属于原持有者返回0
+-- KEYS[1] 锁键名
+-- KEYS[2] 令牌计数器
+-- ARGV[1] 原持有者
+-- ARGV[2] 新持有者
+-- ARGV[3] 有效时间（毫秒）
+-- ARGV[4] 令牌计数器有效时间（毫秒）
+local function next_token(key, ttl)
+    local token
+    if redis.call('exists', key) == 0 then
+        -- 计数器不存在（首次使用或已过期）时从当前时间（微秒）开始，仍大于过期前发放过的令牌
+        local now = redis.call('time')
+        token = redis.call('incrby', key, tonumber(now[1]) * 1000000 + tonumber(now[2]))
+    else
+        token = redis.call('incr', key)
+    end
+    redis.call('pexpire', key, ttl)
+    return token
+end
+local count = redis.call('hget', KEYS[1], ARGV[1])
+if not count then
+    return 0
+end
+local token = next_token(KEYS[2], ARGV[4])
+redis.call('hdel', KEYS[1], ARGV[1])
+redis.call('hset', KEYS[1], ARGV[2], count)
+redis.call('hset', KEYS[1], 'fence', token)
+redis.call('pexpire', KEYS[1], ARGV[3])
+return token
@@ -0,0 +1,25 @@
+-- 释放锁（可重入）：比较持有者后重入次数减1，减到0时移除该持有者，没有其他持有者（读锁）时删除锁并通知等待的节点
+-- 返回-1表示锁已不属于该持有者，0表示仍被持有，1表示已释放
+-- KEYS[1] 锁键名
+-- ARGV[1] 锁持有者
+-- ARGV[2] 有效时间（毫秒）
+-- ARGV[3] 锁释放通知频道，频道不是键，放在ARGV中不影响集群的slot校验
+if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then
+    return -1
+end
+if redis.call('hincrby', KEYS[1], ARGV[1], -1) > 0 then
+    -- 读锁可能有其他持有者，只延长不缩短
+    if redis.call('pttl', KEYS[1]) < tonumber(ARGV[2]) then
+        redis.call('pexpire', KEYS[1], ARGV[2])
+    end
+    return 0
+end
+redis.call('hdel', KEYS[1], ARGV[1])
+-- 除去mode、fence字段后还有持有者（读锁）则不删除
+local left = redis.call('hlen', KEYS[1]) - redis.call('hexists', KEYS[1], 'mode') - redis.call('hexists', KEYS[1], 'fence')
+if left > 0 then
+    return 0
+end
+redis.call('del', KEYS[1])
+redis.call('publish', ARGV[3], 1)
+return 1
@@ -0,0 +1,39 @@
+-- 获取写锁（可重入）：没有锁时获取，获取失败且需要等待时设置写锁等待标记，阻止新的读锁加入
+-- 成功返回令牌（大于0），失败返回-1减去锁的剩余有效时间（毫秒）
+-- KEYS[1] 锁键名
+-- KEYS[2] 写锁等待标记
+-- KEYS[3] 令牌计数器
+-- ARGV[1] 锁持有者
+-- ARGV[2] 有效时间（毫秒）
+-- ARGV[3] 等待标记的有效时间（毫秒），0表示不等待
+-- ARGV[4] 令牌计数器有效时间（毫秒）
+local function next_token(key, ttl)
+    local token
+    if redis.call('exists', key) == 0 then
+        -- 计数器不存在（首次使用或已过期）时从当前时间（微秒）开始，仍大于过期前发放过的令牌
+        local now = redis.call('time')
+        token = redis.call('incrby', key, tonumber(now[1]) * 1000000 + tonumber(now[2]))
+    else
+        token = redis.call('incr', key)
+    end
+    redis.call('pexpire', key, ttl)
+    return token
+end
+if redis.call('exists', KEYS[1]) == 0 then
+    local token = next_token(KEYS[3], ARGV[4])
+    redis.call('hset', KEYS[1], 'mode', 'write')
+    redis.call('hset', KEYS[1], 'fence', token)
+    redis.call('hincrby', KEYS[1], ARGV[1], 1)
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    redis.call('del', KEYS[2])
+    return token
+end
+if redis.call('hget', KEYS[1], 'mode') == 'write' and redis.call('hexists', KEYS[1], ARGV[1]) == 1 then
+    redis.call('hincrby', KEYS[1], ARGV[1], 1)
+    redis.call('pexpire', KEYS[1], ARGV[2])
+    return tonumber(redis.call('hget', KEYS[1], 'fence')) or 0
+end
+if ARGV[3] ~= '0' then
+    redis.call('set', KEYS[2], 1, 'PX', ARGV[3])
+end
+return -1 - math.max(redis.call('pttl', KEYS[1]), 0)
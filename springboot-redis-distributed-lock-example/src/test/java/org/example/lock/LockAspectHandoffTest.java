@@ -0,0 +1,185 @@
+package org.example.lock;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.common.trace.SpanExporter;
+import org.example.common.trace.Tracer;
+import org.example.lock.metrics.LockMetrics;
+import org.example.lock.provider.MemoryLockProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 本地交接测试：写锁释放时只交接给等待写锁的本地线程，读锁线程不会卡在交接的写锁上
+ * <p>
+ * 使用内存锁后端，不需要redis
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class LockAspectHandoffTest {
+    /**
+     * 等待时间远小于过期时间，读锁卡在交接的写锁上时会因等待超时失败
+     */
+    private static final long WAIT_MILLIS = 2000L;
+
+    private AnnotationConfigApplicationContext context;
+    private Target target;
+    private MemoryLockProvider provider;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        context = new AnnotationConfigApplicationContext(TestConfig.class);
+        target = context.getBean(Target.class);
+        provider = context.getBean(MemoryLockProvider.class);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+        context.close();
+    }
+
+    @Test
+    public void writerReleasesToWaitingReader() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> writer = executor.submit(() -> target.write(entered, release));
+        assertTrue(entered.await(1, TimeUnit.SECONDS));
+        long start = System.nanoTime();
+        Future<String> reader = executor.submit(target::read);
+        //读锁线程在本地锁上排队
+        Thread.sleep(100L);
+        release.countDown();
+        writer.get(1, TimeUnit.SECONDS);
+        reader.get(WAIT_MILLIS * 2, TimeUnit.MILLISECONDS);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < WAIT_MILLIS);
+        assertReleased();
+    }
+
+    @Test
+    public void writerHandsOffToWaitingWriter() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> first = executor.submit(() -> target.write(entered, release));
+        assertTrue(entered.await(1, TimeUnit.SECONDS));
+        CountDownLatch secondEntered = new CountDownLatch(1);
+        CountDownLatch secondRelease = new CountDownLatch(0);
+        Future<?> second = executor.submit(() -> target.write(secondEntered, secondRelease));
+        Thread.sleep(100L);
+        release.countDown();
+        first.get(1, TimeUnit.SECONDS);
+        assertTrue(secondEntered.await(1, TimeUnit.SECONDS));
+        second.get(1, TimeUnit.SECONDS);
+        assertReleased();
+    }
+
+    /**
+     * 全部执行完后分布式锁已释放，其他持有者可以立即获取
+     */
+    private void assertReleased() {
+        assertTrue(provider.tryLock("handoff", "other", 1000L, LockMode.EXCLUSIVE, 0L).isAcquired());
+    }
+
+    public static class Target {
+        @Lock(lockKey = "handoff", expire = 30000L, waitTime = WAIT_MILLIS, timeUnit = TimeUnit.MILLISECONDS,
+                handoff = true)
+        public void write(CountDownLatch entered, CountDownLatch release) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Lock(lockKey = "handoff", expire = 30000L, waitTime = WAIT_MILLIS, timeUnit = TimeUnit.MILLISECONDS,
+                mode = LockMode.READ)
+        public String read() {
+            return "value";
+        }
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    static class TestConfig {
+        @Bean
+        public Target target() {
+            return new Target();
+        }
+
+        @Bean
+        public LockAspect lockAspect() {
+            return new LockAspect();
+        }
+
+        @Bean
+        public MemoryLockProvider memoryLockProvider() {
+            return new MemoryLockProvider();
+        }
+
+        @Bean
+        public LockWatchdog lockWatchdog() {
+            return new LockWatchdog();
+        }
+
+        @Bean
+        public LockReleaseSubscriber lockReleaseSubscriber() {
+            return new LockReleaseSubscriber();
+        }
+
+        @Bean
+        public LockKeyResolver lockKeyResolver() {
+            return new LockKeyResolver();
+        }
+
+        @Bean
+        public LocalLockRegistry localLockRegistry() {
+            return new LocalLockRegistry();
+        }
+
+        /**
+         * 指标与交接无关
+         */
+        @Bean
+        public LockMetrics lockMetrics() {
+            LockMetrics lockMetrics = mock(LockMetrics.class);
+            when(lockMetrics.start(anyString())).thenReturn(mock(LockMetrics.Sample.class));
+            return lockMetrics;
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public Tracer tracer() {
+            return new Tracer();
+        }
+
+        @Bean
+        public SpanExporter spanExporter() {
+            return root -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.lock.benchmark;
+
+import ch.qos.logback.classic.Level;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.common.trace.SpanExporter;
+import org.example.common.trace.Tracer;
+import org.example.lock.LocalLockRegistry;
+import org.example.lock.Lock;
+import org.example.lock.LockAspect;
+import org.example.lock.LockKeyResolver;
+import org.example.lock.LockReleaseSubscriber;
+import org.example.lock.LockWatchdog;
+import org.example.lock.metrics.LockMetrics;
+import org.example.lock.provider.MemoryLockProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LockAspect#distributedLockAround}的开销，对比有无注解元数据缓存
+ * <p>
+ * 使用内存锁后端，不需要redis，测量的是切面本身：解析锁KEY、本地锁、加锁、释放、指标。
+ * 不缓存时每次调用前清空切面的元数据缓存，相当于每次都反射读取注解
+ * <pre>
+ * mvn test-compile
+ * java -cp target/test-classes:依赖 org.example.lock.benchmark.LockAspectBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LockAspectBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cached;
+
+    private AnnotationConfigApplicationContext context;
+    private Target target;
+    private Map<?, ?> metadataCache;
+
+    @Setup
+    public void setUp() {
+        //切面每次加锁都输出info日志
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        context = new AnnotationConfigApplicationContext(BenchmarkConfig.class);
+        target = context.getBean(Target.class);
+        metadataCache = (Map<?, ?>) ReflectionTestUtils.getField(context.getBean(LockAspect.class), "lockMetadata");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object distributedLockAround() {
+        if (!cached) {
+            metadataCache.clear();
+        }
+        return target.call("value");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LockAspectBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    /**
+     * 被切面拦截的业务
+     */
+    public static class Target {
+        @Lock(lockKey = "benchmark", expire = 10)
+        public Object call(String value) {
+            return value;
+        }
+    }
+
+    @Configuration
+    @EnableAspectJAutoProxy(proxyTargetClass = true)
+    static class BenchmarkConfig {
+        @Bean
+        public Target target() {
+            return new Target();
+        }
+
+        @Bean
+        public LockAspect lockAspect() {
+            return new LockAspect();
+        }
+
+        @Bean
+        public MemoryLockProvider memoryLockProvider() {
+            return new MemoryLockProvider();
+        }
+
+        @Bean
+        public LockWatchdog lockWatchdog() {
+            return new LockWatchdog();
+        }
+
+        @Bean
+        public LockReleaseSubscriber lockReleaseSubscriber() {
+            return new LockReleaseSubscriber();
+        }
+
+        @Bean
+        public LockKeyResolver lockKeyResolver() {
+            return new LockKeyResolver();
+        }
+
+        @Bean
+        public LocalLockRegistry localLockRegistry() {
+            return new LocalLockRegistry();
+        }
+
+        @Bean
+        public LockMetrics lockMetrics() {
+            return new LockMetrics();
+        }
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public Tracer tracer() {
+            return new Tracer();
+        }
+
+        @Bean
+        public SpanExporter spanExporter() {
+            return root -> {
+            };
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.lock.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Space-Saving热点统计测试
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class SpaceSavingSketchTest {
+
+    @Test
+    public void fullStripeReplacesMinimum() {
+        //容量小于两个分段的最小容量，只有一个分段
+        SpaceSavingSketch sketch = new SpaceSavingSketch(2);
+        sketch.offer("a");
+        sketch.offer("a");
+        sketch.offer("b");
+        assertEquals("b", sketch.offer("c"));
+        //继承被替换KEY的计数作为误差，下限仍为1
+        assertEquals(1L, sketch.guaranteedCount("c"));
+        assertEquals(0L, sketch.guaranteedCount("b"));
+        assertEquals(2L, sketch.guaranteedCount("a"));
+    }
+
+    @Test
+    public void heavyKeySurvivesLongTail() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(200);
+        for (int i = 0; i < 10000; i++) {
+            sketch.offer("hot");
+            sketch.offer("tail:" + i);
+        }
+        List<SpaceSavingSketch.HotKey> top = sketch.top(1);
+        assertEquals("hot", top.get(0).getKey());
+        assertTrue(sketch.guaranteedCount("hot") >= 10000L - top.get(0).getError());
+        assertTrue(sketch.top(Integer.MAX_VALUE).size() <= 200);
+    }
+
+    @Test
+    public void halveCoolsCounts() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(100);
+        for (int i = 0; i < 10; i++) {
+            sketch.offer("k");
+        }
+        sketch.halve();
+        assertEquals(5L, sketch.guaranteedCount("k"));
+        sketch.halve();
+        sketch.halve();
+        sketch.halve();
+        assertEquals(0L, sketch.guaranteedCount("k"));
+    }
+
+    @Test
+    public void concurrentOffersOfTrackedKeysAreNotLost() throws InterruptedException {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(200);
+        int threads = 8;
+        int perThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    assertNull(sketch.offer("key" + (i % 50)));
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        long total = 0L;
+        for (int i = 0; i < 50; i++) {
+            total += sketch.guaranteedCount("key" + i);
+        }
+        assertEquals((long) threads * perThread, total);
+        assertNotNull(sketch.top(1).get(0));
+    }
+}
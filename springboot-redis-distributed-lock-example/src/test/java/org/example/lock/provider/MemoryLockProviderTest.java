@@ -0,0 +1,241 @@
+package org.example.lock.provider;
+
+import org.example.lock.LockMode;
+import org.example.lock.LockReleaseSubscriber;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 内存锁行为测试，与redis脚本的语义一致，不需要启动redis
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class MemoryLockProviderTest {
+    private static final long EXPIRE = 10000L;
+
+    private MemoryLockProvider provider;
+    private LockReleaseSubscriber subscriber;
+
+    @BeforeEach
+    public void setUp() {
+        subscriber = new LockReleaseSubscriber();
+        provider = new MemoryLockProvider();
+        provider.lockReleaseSubscriber = subscriber;
+        ReflectionTestUtils.setField(provider, "tick", 10L);
+        provider.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        provider.stop();
+    }
+
+    @Test
+    public void reentrantLockKeepsTokenAndNeedsMatchingUnlocks() {
+        LockResult first = provider.tryLock("key", "a", EXPIRE, LockMode.EXCLUSIVE, 0L);
+        LockResult second = provider.tryLock("key", "a", EXPIRE, LockMode.EXCLUSIVE, 0L);
+        assertTrue(first.isAcquired());
+        assertTrue(second.isAcquired());
+        assertEquals(first.getToken(), second.getToken());
+
+        assertFalse(provider.tryLock("key", "b", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        //第一次释放只减少重入次数
+        assertTrue(provider.unlock("key", "a", EXPIRE));
+        assertFalse(provider.tryLock("key", "b", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertTrue(provider.unlock("key", "a", EXPIRE));
+        assertTrue(provider.tryLock("key", "b", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+    }
+
+    @Test
+    public void unlockByOtherOwnerIsRejected() {
+        assertTrue(provider.tryLock("key", "a", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertFalse(provider.unlock("key", "b", EXPIRE));
+        assertFalse(provider.tryLock("key", "b", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+    }
+
+    @Test
+    public void finalUnlockWakesWaiter() throws InterruptedException {
+        provider.tryLock("key", "a", EXPIRE, LockMode.EXCLUSIVE, 0L);
+        provider.tryLock("key", "a", EXPIRE, LockMode.EXCLUSIVE, 0L);
+        LockReleaseSubscriber.Waiter waiter = subscriber.subscribe("key");
+        try {
+            provider.unlock("key", "a", EXPIRE);
+            assertFalse(waiter.await(50L));
+            provider.unlock("key", "a", EXPIRE);
+            assertTrue(waiter.await(1000L));
+        } finally {
+            subscriber.unsubscribe(waiter);
+        }
+    }
+
+    @Test
+    public void expiredLockCanBeTakenByOthers() throws InterruptedException {
+        assertTrue(provider.tryLock("key", "a", 50L, LockMode.EXCLUSIVE, 0L).isAcquired());
+        Thread.sleep(100L);
+        assertTrue(provider.tryLock("key", "b", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        //原持有者的锁已过期，释放不影响新持有者
+        assertFalse(provider.unlock("key", "a", EXPIRE));
+        assertFalse(provider.tryLock("key", "c", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+    }
+
+    @Test
+    public void multiLockAcquiresAllKeys() {
+        LockResult result = provider.tryLockAll(Arrays.asList("a", "b", "c"), "owner", EXPIRE);
+        assertTrue(result.isAcquired());
+        assertEquals(3, result.getTokens().length);
+        for (String key : Arrays.asList("a", "b", "c")) {
+            assertFalse(provider.tryLock(key, "other", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        }
+        assertTrue(provider.unlockAll(Arrays.asList("a", "b", "c"), "owner", EXPIRE));
+        for (String key : Arrays.asList("a", "b", "c")) {
+            assertTrue(provider.tryLock(key, "other", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        }
+    }
+
+    @Test
+    public void multiLockRollsBackWhenAnyKeyIsHeld() {
+        assertTrue(provider.tryLock("b", "other", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        LockResult result = provider.tryLockAll(Arrays.asList("a", "b", "c"), "owner", EXPIRE);
+        assertFalse(result.isAcquired());
+        assertTrue(result.getTtl() > 0L);
+        //已获取的a被回滚，c没有获取
+        assertTrue(provider.tryLock("a", "third", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertTrue(provider.tryLock("c", "third", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertFalse(provider.unlock("a", "owner", EXPIRE));
+    }
+
+    @Test
+    public void multiLockRollbackKeepsReentrantHolds() {
+        assertTrue(provider.tryLock("a", "owner", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertTrue(provider.tryLock("b", "other", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertFalse(provider.tryLockAll(Arrays.asList("a", "b"), "owner", EXPIRE).isAcquired());
+        //回滚只撤销本次的重入，之前持有的a仍然有效
+        assertFalse(provider.tryLock("a", "third", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertTrue(provider.unlock("a", "owner", EXPIRE));
+        assertTrue(provider.tryLock("a", "third", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+    }
+
+    @Test
+    public void readLocksAreShared() {
+        LockResult first = provider.tryLock("rw", "r1", EXPIRE, LockMode.READ, 0L);
+        LockResult second = provider.tryLock("rw", "r2", EXPIRE, LockMode.READ, 0L);
+        assertTrue(first.isAcquired());
+        assertTrue(second.isAcquired());
+        //读锁不发放令牌
+        assertEquals(0L, first.getToken());
+        assertEquals(0L, second.getToken());
+    }
+
+    @Test
+    public void writeLockExcludesReadersAndWriters() {
+        assertTrue(provider.tryLock("rw", "w1", EXPIRE, LockMode.WRITE, 0L).isAcquired());
+        assertFalse(provider.tryLock("rw", "r1", EXPIRE, LockMode.READ, 0L).isAcquired());
+        assertFalse(provider.tryLock("rw", "w2", EXPIRE, LockMode.WRITE, 0L).isAcquired());
+        assertFalse(provider.tryLock("rw", "e1", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertTrue(provider.unlock("rw", "w1", EXPIRE));
+        assertTrue(provider.tryLock("rw", "r1", EXPIRE, LockMode.READ, 0L).isAcquired());
+    }
+
+    @Test
+    public void writerWaitsForAllReaders() {
+        provider.tryLock("rw", "r1", EXPIRE, LockMode.READ, 0L);
+        provider.tryLock("rw", "r2", EXPIRE, LockMode.READ, 0L);
+        assertFalse(provider.tryLock("rw", "w1", EXPIRE, LockMode.WRITE, 0L).isAcquired());
+        provider.unlock("rw", "r1", EXPIRE);
+        assertFalse(provider.tryLock("rw", "w1", EXPIRE, LockMode.WRITE, 0L).isAcquired());
+        provider.unlock("rw", "r2", EXPIRE);
+        assertTrue(provider.tryLock("rw", "w1", EXPIRE, LockMode.WRITE, 0L).isAcquired());
+    }
+
+    @Test
+    public void waitingWriterBlocksNewReaders() {
+        provider.tryLock("rw", "r1", EXPIRE, LockMode.READ, 0L);
+        //写锁获取失败并需要等待，设置等待标记
+        assertFalse(provider.tryLock("rw", "w1", EXPIRE, LockMode.WRITE, EXPIRE).isAcquired());
+        assertFalse(provider.tryLock("rw", "r2", EXPIRE, LockMode.READ, 0L).isAcquired());
+        //已持有读锁的重入不受影响
+        assertTrue(provider.tryLock("rw", "r1", EXPIRE, LockMode.READ, 0L).isAcquired());
+        provider.unlock("rw", "r1", EXPIRE);
+        provider.unlock("rw", "r1", EXPIRE);
+        assertTrue(provider.tryLock("rw", "w1", EXPIRE, LockMode.WRITE, EXPIRE).isAcquired());
+        provider.unlock("rw", "w1", EXPIRE);
+        //写锁获取成功后清除等待标记
+        assertTrue(provider.tryLock("rw", "r2", EXPIRE, LockMode.READ, 0L).isAcquired());
+    }
+
+    @Test
+    public void readLockDoesNotUpgradeToWriteLock() {
+        provider.tryLock("rw", "a", EXPIRE, LockMode.READ, 0L);
+        assertFalse(provider.tryLock("rw", "a", EXPIRE, LockMode.WRITE, 0L).isAcquired());
+    }
+
+    @Test
+    public void tokensIncreaseOnEveryNewHolder() throws InterruptedException {
+        long previous = 0L;
+        for (int i = 0; i < 10; i++) {
+            LockResult result = provider.tryLock("fence", "owner" + i, EXPIRE, LockMode.EXCLUSIVE, 0L);
+            assertTrue(result.getToken() > previous);
+            previous = result.getToken();
+            provider.unlock("fence", "owner" + i, EXPIRE);
+        }
+        //交接给新持有者发放新令牌
+        provider.tryLock("fence", "a", EXPIRE, LockMode.EXCLUSIVE, 0L);
+        Long transferred = provider.transfer("fence", "a", "b", EXPIRE);
+        assertTrue(transferred > previous);
+        assertNull(provider.transfer("fence", "a", "c", EXPIRE));
+        provider.unlock("fence", "b", EXPIRE);
+        //过期后被其他持有者获取，令牌同样更大
+        provider.tryLock("fence", "c", 50L, LockMode.EXCLUSIVE, 0L);
+        Thread.sleep(100L);
+        LockResult afterExpire = provider.tryLock("fence", "d", EXPIRE, LockMode.WRITE, 0L);
+        assertTrue(afterExpire.getToken() > transferred);
+    }
+
+    @Test
+    public void tokensFollowAcquisitionOrderUnderContention() throws InterruptedException {
+        int threads = 8;
+        int rounds = 200;
+        List<Long> tokens = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            String owner = "owner" + t;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < rounds; ) {
+                        LockResult result = provider.tryLock("fence", owner, EXPIRE, LockMode.EXCLUSIVE, 0L);
+                        if (!result.isAcquired()) {
+                            Thread.yield();
+                            continue;
+                        }
+                        //持有锁期间记录，列表顺序就是获取锁的顺序
+                        tokens.add(result.getToken());
+                        provider.unlock("fence", owner, EXPIRE);
+                        i++;
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(threads * rounds, tokens.size());
+        for (int i = 1; i < tokens.size(); i++) {
+            assertTrue(tokens.get(i) > tokens.get(i - 1));
+        }
+    }
+}
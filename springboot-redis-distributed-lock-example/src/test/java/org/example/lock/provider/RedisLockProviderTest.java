@@ -0,0 +1,253 @@
+package org.example.lock.provider;
+
+import org.example.lock.LockLease;
+import org.example.lock.LockMode;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * redis锁脚本集成测试，需要本地redis 5以上（127.0.0.1:6379），连不上时跳过
+ * <p>
+ * 与{@link MemoryLockProviderTest}覆盖相同的语义：重入、批量锁回滚、读写锁与写锁等待标记、交接、续期和令牌
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class RedisLockProviderTest {
+    private static final long EXPIRE = 10000L;
+    private static final long FENCE_TTL = 60000L;
+
+    private static LettuceConnectionFactory connectionFactory;
+    private static StringRedisTemplate redisTemplate;
+
+    private RedisLockProvider provider;
+    private String prefix;
+
+    @BeforeAll
+    public static void connect() {
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofSeconds(1)).build();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", 6379),
+                clientConfiguration);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new StringRedisTemplate(connectionFactory);
+        Properties server;
+        try {
+            server = redisTemplate.execute(connection -> connection.info("server"), true);
+        } catch (RuntimeException e) {
+            Assumptions.assumeTrue(false, "redis不可用：" + e.getMessage());
+            return;
+        }
+        //脚本中调用TIME后再写入需要redis 5以上
+        String version = server == null ? "0." : server.getProperty("redis_version", "0.");
+        Assumptions.assumeTrue(Integer.parseInt(version.substring(0, version.indexOf('.'))) >= 5, "需要redis 5以上");
+    }
+
+    @AfterAll
+    public static void disconnect() {
+        connectionFactory.destroy();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        provider = new RedisLockProvider();
+        provider.redisTemplate = redisTemplate;
+        provider.lockScripts = new LockScripts();
+        provider.lockScripts.redisTemplate = redisTemplate;
+        provider.fenceTtl = FENCE_TTL;
+        prefix = "redis-lock-provider-test:" + UUID.randomUUID() + ":";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        Set<String> keys = redisTemplate.keys("*" + prefix + "*");
+        if (keys != null && !keys.isEmpty()) {
+            redisTemplate.delete(keys);
+        }
+    }
+
+    @Test
+    public void reentrantLockKeepsTokenAndNeedsMatchingUnlocks() {
+        String key = key("key");
+        LockResult first = provider.tryLock(key, "a", EXPIRE, LockMode.EXCLUSIVE, 0L);
+        LockResult second = provider.tryLock(key, "a", EXPIRE, LockMode.EXCLUSIVE, 0L);
+        assertTrue(first.isAcquired());
+        assertTrue(second.isAcquired());
+        assertEquals(first.getToken(), second.getToken());
+
+        LockResult other = provider.tryLock(key, "b", EXPIRE, LockMode.EXCLUSIVE, 0L);
+        assertFalse(other.isAcquired());
+        //失败时返回锁的剩余有效时间
+        assertTrue(other.getTtl() > 0L && other.getTtl() <= EXPIRE);
+        //第一次释放只减少重入次数
+        assertTrue(provider.unlock(key, "a", EXPIRE));
+        assertFalse(provider.tryLock(key, "b", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertTrue(provider.unlock(key, "a", EXPIRE));
+        assertTrue(provider.tryLock(key, "b", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertFalse(provider.unlock(key, "a", EXPIRE));
+    }
+
+    @Test
+    public void multiLockAcquiresAllKeys() {
+        //集群模式下批量锁需要相同的hash tag
+        String tag = "{" + prefix + "}";
+        List<String> keys = Arrays.asList(tag + "a", tag + "b", tag + "c");
+        LockResult result = provider.tryLockAll(keys, "owner", EXPIRE);
+        assertTrue(result.isAcquired());
+        assertEquals(3, result.getTokens().length);
+        for (String key : keys) {
+            assertFalse(provider.tryLock(key, "other", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        }
+        assertTrue(provider.unlockAll(keys, "owner", EXPIRE));
+        for (String key : keys) {
+            assertTrue(provider.tryLock(key, "other", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        }
+    }
+
+    @Test
+    public void multiLockRollsBackWhenAnyKeyIsHeld() {
+        String tag = "{" + prefix + "}";
+        List<String> keys = Arrays.asList(tag + "a", tag + "b", tag + "c");
+        assertTrue(provider.tryLock(keys.get(1), "other", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        LockResult result = provider.tryLockAll(keys, "owner", EXPIRE);
+        assertFalse(result.isAcquired());
+        assertTrue(result.getTtl() > 0L);
+        //一个都没有获取
+        assertTrue(provider.tryLock(keys.get(0), "third", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertTrue(provider.tryLock(keys.get(2), "third", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        assertFalse(provider.unlock(keys.get(0), "owner", EXPIRE));
+    }
+
+    @Test
+    public void readLocksAreSharedAndExcludeWriters() {
+        String key = key("rw");
+        LockResult first = provider.tryLock(key, "r1", EXPIRE, LockMode.READ, 0L);
+        LockResult second = provider.tryLock(key, "r2", EXPIRE, LockMode.READ, 0L);
+        assertTrue(first.isAcquired());
+        assertTrue(second.isAcquired());
+        //读锁不发放令牌
+        assertEquals(0L, first.getToken());
+        assertFalse(provider.tryLock(key, "w1", EXPIRE, LockMode.WRITE, 0L).isAcquired());
+        assertFalse(provider.tryLock(key, "e1", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+        provider.unlock(key, "r1", EXPIRE);
+        assertFalse(provider.tryLock(key, "w1", EXPIRE, LockMode.WRITE, 0L).isAcquired());
+        provider.unlock(key, "r2", EXPIRE);
+        LockResult write = provider.tryLock(key, "w1", EXPIRE, LockMode.WRITE, 0L);
+        assertTrue(write.isAcquired());
+        assertTrue(write.getToken() > 0L);
+        assertFalse(provider.tryLock(key, "r1", EXPIRE, LockMode.READ, 0L).isAcquired());
+        assertFalse(provider.tryLock(key, "w2", EXPIRE, LockMode.WRITE, 0L).isAcquired());
+        assertTrue(provider.unlock(key, "w1", EXPIRE));
+        assertTrue(provider.tryLock(key, "r1", EXPIRE, LockMode.READ, 0L).isAcquired());
+    }
+
+    @Test
+    public void waitingWriterBlocksNewReaders() {
+        String key = key("rw");
+        provider.tryLock(key, "r1", EXPIRE, LockMode.READ, 0L);
+        //写锁获取失败并需要等待，设置等待标记
+        assertFalse(provider.tryLock(key, "w1", EXPIRE, LockMode.WRITE, EXPIRE).isAcquired());
+        assertFalse(provider.tryLock(key, "r2", EXPIRE, LockMode.READ, 0L).isAcquired());
+        //已持有读锁的重入不受影响
+        assertTrue(provider.tryLock(key, "r1", EXPIRE, LockMode.READ, 0L).isAcquired());
+        provider.unlock(key, "r1", EXPIRE);
+        provider.unlock(key, "r1", EXPIRE);
+        assertTrue(provider.tryLock(key, "w1", EXPIRE, LockMode.WRITE, EXPIRE).isAcquired());
+        provider.unlock(key, "w1", EXPIRE);
+        //写锁获取成功后清除等待标记
+        assertTrue(provider.tryLock(key, "r2", EXPIRE, LockMode.READ, 0L).isAcquired());
+    }
+
+    @Test
+    public void transferMovesLockAndIssuesNewToken() {
+        String key = key("transfer");
+        LockResult result = provider.tryLock(key, "a", EXPIRE, LockMode.EXCLUSIVE, 0L);
+        provider.tryLock(key, "a", EXPIRE, LockMode.EXCLUSIVE, 0L);
+        Long token = provider.transfer(key, "a", "b", EXPIRE);
+        assertTrue(token > result.getToken());
+        assertNull(provider.transfer(key, "a", "c", EXPIRE));
+        assertFalse(provider.unlock(key, "a", EXPIRE));
+        //重入次数一并转移
+        assertEquals(token.longValue(), provider.tryLock(key, "b", EXPIRE, LockMode.EXCLUSIVE, 0L).getToken());
+        assertTrue(provider.unlock(key, "b", EXPIRE));
+        assertTrue(provider.unlock(key, "b", EXPIRE));
+        assertTrue(provider.unlock(key, "b", EXPIRE));
+        assertTrue(provider.tryLock(key, "c", EXPIRE, LockMode.EXCLUSIVE, 0L).isAcquired());
+    }
+
+    @Test
+    public void renewOnlyExtendsOwnLocks() {
+        String owned = key("owned");
+        String other = key("other");
+        provider.tryLock(owned, "a", 1000L, LockMode.EXCLUSIVE, 0L);
+        provider.tryLock(other, "b", 1000L, LockMode.EXCLUSIVE, 0L);
+        boolean[] renewed = provider.renew(Arrays.asList(lease(owned, "a", EXPIRE), lease(other, "a", EXPIRE),
+                lease(key("missing"), "a", EXPIRE)));
+        assertArrayEquals(new boolean[]{true, false, false}, renewed);
+        assertTrue(pttl("DistributedLock:{" + owned + "}") > 1000L);
+        assertTrue(pttl("DistributedLock:{" + other + "}") <= 1000L);
+    }
+
+    @Test
+    public void tokensIncreaseAndCounterExpires() {
+        String key = key("fence");
+        String fenceKey = "DistributedLockFence:{" + key + "}";
+        long previous = 0L;
+        for (int i = 0; i < 5; i++) {
+            LockResult result = provider.tryLock(key, "owner" + i, EXPIRE, LockMode.EXCLUSIVE, 0L);
+            assertTrue(result.getToken() > previous);
+            previous = result.getToken();
+            provider.unlock(key, "owner" + i, EXPIRE);
+        }
+        //每次发放令牌时重置计数器的有效时间
+        long ttl = pttl(fenceKey);
+        assertTrue(ttl > 0L && ttl <= FENCE_TTL);
+        //计数器过期后重新创建，令牌仍大于之前发放的
+        redisTemplate.delete(fenceKey);
+        LockResult afterExpire = provider.tryLock(key, "later", EXPIRE, LockMode.WRITE, 0L);
+        assertTrue(afterExpire.getToken() > previous);
+        provider.unlock(key, "later", EXPIRE);
+        assertTrue(provider.tryLock(key, "next", EXPIRE, LockMode.EXCLUSIVE, 0L).getToken() > afterExpire.getToken());
+    }
+
+    private String key(String name) {
+        return prefix + name;
+    }
+
+    private long pttl(String key) {
+        Long ttl = redisTemplate.getExpire(key, TimeUnit.MILLISECONDS);
+        return ttl == null ? -2L : ttl;
+    }
+
+    private static LockLease lease(String lockKey, String owner, long expire) {
+        LockLease lease = mock(LockLease.class);
+        when(lease.getLockKey()).thenReturn(lockKey);
+        when(lease.getOwner()).thenReturn(owner);
+        when(lease.getExpire()).thenReturn(expire);
+        return lease;
+    }
+}
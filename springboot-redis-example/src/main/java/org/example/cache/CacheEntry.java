@@ -0,0 +1,52 @@
+package org.example.cache;
+
+/**
+ * 读穿缓存在redis中保存的值，除了值本身还记录加载耗时和逻辑过期时间，用于提前刷新
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class CacheEntry {
+    private Object value;
+    /**
+     * 加载耗时（毫秒）
+     */
+    private long delta;
+    /**
+     * 过期时间点（毫秒时间戳）
+     */
+    private long expireAt;
+
+    public CacheEntry() {
+    }
+
+    public CacheEntry(Object value, long delta, long expireAt) {
+        this.value = value;
+        this.delta = delta;
+        this.expireAt = expireAt;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+
+    public long getDelta() {
+        return delta;
+    }
+
+    public void setDelta(long delta) {
+        this.delta = delta;
+    }
+
+    public long getExpireAt() {
+        return expireAt;
+    }
+
+    public void setExpireAt(long expireAt) {
+        this.expireAt = expireAt;
+    }
+}
@@ -0,0 +1,233 @@
+package org.example.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.lettuce.core.resource.ClientResources;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于redis 6服务端失效通知（CLIENT TRACKING）的客户端缓存
+ * <p>
+ * 使用一个单独的RESP3连接读取并开启跟踪，其他客户端修改KEY后，redis通过该连接推送invalidate消息，收到后删除本地缓存，
+ * 不依赖过期时间，也能感知到绕过本应用直接修改redis的情况
+ * <ul>
+ * <li>默认模式：redis记录该连接读过的KEY，只推送这些KEY的失效消息，服务端需要为每个KEY保存跟踪信息</li>
+ * <li>广播模式：按前缀订阅，匹配前缀的KEY修改时都会推送，服务端不保存KEY，但推送量更大</li>
+ * </ul>
+ * 读取redis与收到失效消息在不同线程上执行，读取期间收到过任何失效消息时不写入本地缓存，避免把旧值写回。
+ * 连接断开期间可能丢失失效消息，断开时清空本地缓存，重连后重新开启跟踪
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class ClientSideCache implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ClientSideCache.class);
+
+    private static final String INVALIDATE = "invalidate";
+
+    private final RedisClient client;
+    private final StatefulRedisConnection<String, Object> connection;
+    private final TrackingArgs trackingArgs;
+    private final Cache<String, Object> local;
+    /**
+     * 每次收到失效消息、断开连接或重新开启跟踪时加1
+     */
+    private final AtomicLong epoch = new AtomicLong();
+    /**
+     * 是否已开启跟踪，未开启时只读redis不写本地缓存
+     */
+    private volatile boolean tracking;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * @param resources       与spring的lettuce连接共用IO线程
+     * @param redisURI
+     * @param valueSerializer 与redisTemplate一致，读取redisTemplate写入的值
+     * @param broadcast       是否使用广播模式
+     * @param prefixes        广播模式下订阅的KEY前缀，为空表示所有KEY
+     * @param maximumSize     本地最多保留的条数
+     */
+    public ClientSideCache(ClientResources resources, RedisURI redisURI, RedisSerializer<Object> valueSerializer,
+                           boolean broadcast, String[] prefixes, long maximumSize) {
+        TrackingArgs args = TrackingArgs.Builder.enabled();
+        if (broadcast) {
+            args.bcast();
+            if (prefixes.length > 0) {
+                args.prefixes(prefixes);
+            }
+        }
+        this.trackingArgs = args;
+        this.local = Caffeine.newBuilder().maximumSize(maximumSize).build();
+        this.client = RedisClient.create(resources, redisURI);
+        //失效消息只在RESP3下推送，redis 6以下直接报错
+        this.client.setOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP3).build());
+        this.client.addListener(new ReconnectListener());
+        this.connection = client.connect(new ValueCodec(valueSerializer));
+        this.connection.addListener(this::onPush);
+        connection.sync().clientTracking(trackingArgs);
+        tracking = true;
+    }
+
+    /**
+     * 查询值，本地命中时不访问redis
+     *
+     * @param key
+     * @return 不存在返回null
+     */
+    public Object get(String key) {
+        Object value = local.getIfPresent(key);
+        if (value != null) {
+            hits.increment();
+            return value;
+        }
+        misses.increment();
+        long before = epoch.get();
+        value = connection.sync().get(key);
+        if (value != null && tracking && epoch.get() == before) {
+            //先写入再检查：失效消息总是先递增epoch再删除本地，与写入交错时要么这里看到epoch变化后删掉写入的值，
+            //要么删除发生在写入之后，旧值不会留在本地缓存
+            local.put(key, value);
+            if (epoch.get() != before) {
+                local.asMap().remove(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 统计信息
+     *
+     * @return
+     */
+    public Map<String, Long> stats() {
+        Map<String, Long> stats = new LinkedHashMap<>(8);
+        //caffeine异步淘汰超出的条数，先执行完再统计
+        local.cleanUp();
+        stats.put("size", local.estimatedSize());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        connection.close();
+        client.shutdown();
+    }
+
+    /**
+     * 处理服务端推送，invalidate消息内容为KEY列表，redis执行FLUSHALL等操作时为null，表示全部失效
+     *
+     * @param message
+     */
+    @SuppressWarnings("unchecked")
+    private void onPush(PushMessage message) {
+        if (!INVALIDATE.equals(message.getType())) {
+            return;
+        }
+        epoch.incrementAndGet();
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        List<Object> keys = content.size() > 1 ? (List<Object>) content.get(1) : null;
+        if (keys == null) {
+            invalidations.add(local.estimatedSize());
+            local.invalidateAll();
+            return;
+        }
+        for (Object key : keys) {
+            local.invalidate(key);
+        }
+        invalidations.add(keys.size());
+    }
+
+    /**
+     * 断开期间的失效消息会丢失，断开时清空本地缓存；重连后是新的服务端连接，需要重新开启跟踪。
+     * 回调在IO线程上执行，只能发送异步命令
+     */
+    private class ReconnectListener implements RedisConnectionStateListener {
+        @Override
+        public void onRedisConnected(RedisChannelHandler<?, ?> handler, SocketAddress socketAddress) {
+            if (connection == null || handler != connection) {
+                //首次连接在构造器中开启跟踪
+                return;
+            }
+            connection.async().clientTracking(trackingArgs).whenComplete((result, e) -> {
+                if (e != null) {
+                    logger.warn("重新开启客户端缓存跟踪失败", e);
+                    return;
+                }
+                //断开期间开始的读取没有被跟踪，读到的值之后被修改也不会收到失效消息，不能写入本地缓存
+                epoch.incrementAndGet();
+                tracking = true;
+            });
+        }
+
+        @Override
+        public void onRedisDisconnected(RedisChannelHandler<?, ?> handler) {
+            tracking = false;
+            epoch.incrementAndGet();
+            local.invalidateAll();
+        }
+
+        @Override
+        public void onRedisExceptionCaught(RedisChannelHandler<?, ?> handler, Throwable cause) {
+        }
+    }
+
+    /**
+     * KEY按字符串编解码，值使用redisTemplate的序列化方式
+     */
+    private static final class ValueCodec implements RedisCodec<String, Object> {
+        private final RedisSerializer<Object> serializer;
+
+        ValueCodec(RedisSerializer<Object> serializer) {
+            this.serializer = serializer;
+        }
+
+        @Override
+        public String decodeKey(ByteBuffer bytes) {
+            return StringCodec.UTF8.decodeKey(bytes);
+        }
+
+        @Override
+        public Object decodeValue(ByteBuffer bytes) {
+            byte[] array = new byte[bytes.remaining()];
+            bytes.get(array);
+            return serializer.deserialize(array);
+        }
+
+        @Override
+        public ByteBuffer encodeKey(String key) {
+            return StringCodec.UTF8.encodeKey(key);
+        }
+
+        @Override
+        public ByteBuffer encodeValue(Object value) {
+            return ByteBuffer.wrap(serializer.serialize(value));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.example.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min Sketch访问频率估计
+ * <p>
+ * depth行、每行width个计数器，每个KEY在每行按不同的hash命中一个计数器，估计值取各行的最小值，只会偏大不会偏小。
+ * 各行的hash需要相互独立：{@code String.hashCode}相同的KEY在所有行都会冲突，因此对KEY计算64位MurmurHash3，
+ * 拆成h1、h2两个32位值，第i行取{@code h1 + i * h2}（double hashing）
+ * 内存固定，与KEY的数量无关；计数器用原子数组，读多的场景下无锁
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+final class CountMinSketch {
+    private static final int DEPTH = 4;
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private final AtomicLongArray counters;
+    private final int mask;
+
+    /**
+     * @param width 每行计数器数量，向上取2的幂
+     */
+    CountMinSketch(int width) {
+        int size = Integer.highestOneBit(Math.max(width - 1, 1)) << 1;
+        this.mask = size - 1;
+        this.counters = new AtomicLongArray(size * DEPTH);
+    }
+
+    /**
+     * 计数加1
+     *
+     * @param key
+     * @return 加1后的估计值
+     */
+    long increment(String key) {
+        long hash = hash64(key);
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, counters.incrementAndGet(index(hash, i)));
+        }
+        return min;
+    }
+
+    long estimate(String key) {
+        long hash = hash64(key);
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            min = Math.min(min, counters.get(index(hash, i)));
+        }
+        return min;
+    }
+
+    /**
+     * 所有计数减半，让过去的访问逐渐失去权重；与并发的加1之间不保证原子，误差可以接受
+     */
+    void halve() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, counters.get(i) >>> 1);
+        }
+    }
+
+    /**
+     * 第row行的计数器下标；宽度是2的幂，h2取奇数，各行不会因为h2为偶数而落在同一组计数器上
+     *
+     * @param hash
+     * @param row
+     * @return
+     */
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * (mask + 1) + ((h1 + row * h2) & mask);
+    }
+
+    /**
+     * MurmurHash3 x64_128的前64位，按UTF-16LE字节计算，直接读取字符，不生成字节数组
+     *
+     * @param key
+     * @return
+     */
+    static long hash64(String key) {
+        int length = key.length();
+        long h1 = 0;
+        long h2 = 0;
+        int i = 0;
+        //每块16字节，即8个字符
+        for (; i + 8 <= length; i += 8) {
+            h1 ^= mixK1(chars(key, i, 4));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52DCE729;
+            h2 ^= mixK2(chars(key, i + 4, 4));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495AB5;
+        }
+        int rest = length - i;
+        if (rest > 4) {
+            h2 ^= mixK2(chars(key, i + 4, rest - 4));
+        }
+        if (rest > 0) {
+            h1 ^= mixK1(chars(key, i, Math.min(rest, 4)));
+        }
+        h1 ^= length * 2L;
+        h2 ^= length * 2L;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        return h1 + h2;
+    }
+
+    /**
+     * 从offset开始的count个字符按小端拼成一个long
+     */
+    private static long chars(String key, int offset, int count) {
+        long k = 0;
+        for (int j = 0; j < count; j++) {
+            k |= (long) key.charAt(offset + j) << (16 * j);
+        }
+        return k;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,199 @@
+package org.example.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 热点KEY识别：{@link CountMinSketch}估计访问频率，计数达到阈值的KEY中保留计数最大的topK个作为热点
+ * <p>
+ * 每个窗口结束时所有计数减半，不再被访问的KEY逐渐冷却并移出热点；持续访问时计数约为每个窗口访问次数的2倍。
+ * 衰减在访问时顺带完成，不需要额外的线程。KEY被挤出或冷却移出热点时通知{@link #setDemotionListener}，由缓存删除本地副本
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class HotKeyDetector {
+    private final CountMinSketch sketch;
+    private final int topK;
+    private final long threshold;
+    private final long window;
+    private final AtomicLong nextDecay;
+    private final Set<String> hot = ConcurrentHashMap.newKeySet();
+    /**
+     * 热点中的最小计数，热点已满时计数不超过它的KEY直接跳过，不加锁
+     */
+    private volatile long minHot;
+    /**
+     * 移出热点的KEY，在锁外调用
+     */
+    private volatile Consumer<String> demotionListener = key -> {
+    };
+
+    /**
+     * @param width     每行计数器数量
+     * @param topK      最多保留的热点KEY数量
+     * @param threshold 成为热点的最小计数
+     * @param window    衰减周期（毫秒）
+     */
+    public HotKeyDetector(int width, int topK, long threshold, long window) {
+        this.sketch = new CountMinSketch(width);
+        this.topK = topK;
+        this.threshold = threshold;
+        this.window = window;
+        this.nextDecay = new AtomicLong(System.currentTimeMillis() + window);
+    }
+
+    /**
+     * 设置KEY移出热点时的回调
+     *
+     * @param demotionListener
+     */
+    public void setDemotionListener(Consumer<String> demotionListener) {
+        this.demotionListener = demotionListener;
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key
+     * @return 是否为热点
+     */
+    public boolean record(String key) {
+        decayIfDue();
+        long count = sketch.increment(key);
+        if (count < threshold) {
+            return hot.contains(key);
+        }
+        if (hot.contains(key)) {
+            return true;
+        }
+        if (hot.size() >= topK && count <= minHot) {
+            return false;
+        }
+        String[] demoted = new String[1];
+        boolean promoted = promote(key, count, demoted);
+        if (demoted[0] != null) {
+            demotionListener.accept(demoted[0]);
+        }
+        return promoted;
+    }
+
+    /**
+     * 是否为热点，不计入访问
+     *
+     * @param key
+     * @return
+     */
+    public boolean isHot(String key) {
+        return hot.contains(key);
+    }
+
+    /**
+     * 按计数从大到小返回热点KEY
+     *
+     * @return
+     */
+    public List<HotKey> hotKeys() {
+        List<HotKey> result = new ArrayList<>(hot.size());
+        for (String key : hot) {
+            result.add(new HotKey(key, sketch.estimate(key)));
+        }
+        result.sort(Comparator.comparingLong(HotKey::getCount).reversed());
+        return result;
+    }
+
+    /**
+     * 热点已满时替换计数最小的KEY；热点数量很少，线性查找即可
+     *
+     * @param key
+     * @param count
+     * @param demoted 输出被替换的KEY
+     * @return
+     */
+    private synchronized boolean promote(String key, long count, String[] demoted) {
+        if (hot.contains(key)) {
+            return true;
+        }
+        if (hot.size() >= topK) {
+            String min = null;
+            long minCount = Long.MAX_VALUE;
+            for (String candidate : hot) {
+                long candidateCount = sketch.estimate(candidate);
+                if (candidateCount < minCount) {
+                    min = candidate;
+                    minCount = candidateCount;
+                }
+            }
+            if (count <= minCount) {
+                minHot = minCount;
+                return false;
+            }
+            hot.remove(min);
+            demoted[0] = min;
+        }
+        hot.add(key);
+        updateMinHot();
+        return true;
+    }
+
+    private void decayIfDue() {
+        long now = System.currentTimeMillis();
+        long next = nextDecay.get();
+        if (now < next || !nextDecay.compareAndSet(next, now + window)) {
+            return;
+        }
+        sketch.halve();
+        List<String> demoted = new ArrayList<>();
+        synchronized (this) {
+            for (String key : hot) {
+                if (sketch.estimate(key) < threshold) {
+                    demoted.add(key);
+                }
+            }
+            hot.removeAll(demoted);
+            updateMinHot();
+        }
+        for (String key : demoted) {
+            demotionListener.accept(key);
+        }
+    }
+
+    private void updateMinHot() {
+        long min = Long.MAX_VALUE;
+        for (String key : hot) {
+            min = Math.min(min, sketch.estimate(key));
+        }
+        minHot = hot.isEmpty() ? 0L : min;
+    }
+
+    /**
+     * 热点KEY
+     */
+    public static class HotKey {
+        private final String key;
+        private final long count;
+
+        HotKey(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * 衰减后的估计访问次数，可能偏大
+         *
+         * @return
+         */
+        public long getCount() {
+            return count;
+        }
+    }
+}
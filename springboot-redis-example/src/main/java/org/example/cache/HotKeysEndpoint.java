@@ -0,0 +1,28 @@
+package org.example.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二级缓存的热点KEY，访问/actuator/redishotkeys
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Component
+@Endpoint(id = "redishotkeys")
+public class HotKeysEndpoint {
+
+    @Autowired
+    TwoLevelCacheManager cacheManager;
+
+    @ReadOperation
+    public Map<String, List<HotKeyDetector.HotKey>> hotKeys() {
+        return cacheManager.hotKeys();
+    }
+}
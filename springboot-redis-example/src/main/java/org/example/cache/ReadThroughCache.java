@@ -0,0 +1,213 @@
+package org.example.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读穿缓存，防止热点KEY过期瞬间大量请求同时回源（缓存击穿）
+ * <ul>
+ * <li>节点内：同一KEY同时只有一个线程加载，其余线程等待同一个结果</li>
+ * <li>节点间：加载前先用SET NX抢一个短期租约，只有抢到的节点回源，其余节点有旧值返回旧值，没有则等待新值写入</li>
+ * <li>提前刷新：按XFetch算法，越接近过期、加载越慢的KEY越可能被某次读取提前刷新，热点KEY在过期前就已更新</li>
+ * </ul>
+ * 提前刷新判断：{@code now - delta * beta * ln(random) >= expireAt}，delta为上次加载耗时，beta越大刷新越早
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class ReadThroughCache {
+    private static final Logger logger = LoggerFactory.getLogger(ReadThroughCache.class);
+
+    private static final RedisScript<Long> RELEASE_LEASE =
+            RedisScript.of(new ClassPathResource("lua/release_lease.lua"), Long.class);
+    private static final String LEASE_SUFFIX = ":lease";
+    /**
+     * 没有旧值时等待其他节点加载的轮询间隔（毫秒）
+     */
+    private static final long POLL_INTERVAL = 20L;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final long leaseTime;
+    private final double beta;
+    /**
+     * 本节点正在加载的KEY
+     */
+    private final Map<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * @param redisTemplate
+     * @param stringRedisTemplate 读写租约
+     * @param leaseTime           租约有效时间（毫秒），也是没有旧值时等待其他节点加载的最长时间
+     * @param beta                提前刷新系数，0表示不提前刷新
+     */
+    public ReadThroughCache(RedisTemplate<String, Object> redisTemplate, StringRedisTemplate stringRedisTemplate,
+                            long leaseTime, double beta) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.leaseTime = leaseTime;
+        this.beta = beta;
+    }
+
+    /**
+     * 读取KEY，不存在或需要提前刷新时调用loader加载并写回redis
+     *
+     * @param key
+     * @param ttl    过期时间（秒）
+     * @param loader 返回null时不缓存
+     * @param <T>
+     * @return
+     * @throws Cache.ValueRetrievalException 没有旧值且回源失败时抛出；提前刷新失败时返回旧值
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key, long ttl, Callable<T> loader) {
+        CacheEntry entry = (CacheEntry) redisTemplate.opsForValue().get(key);
+        if (entry != null && !shouldRefresh(entry)) {
+            return (T) entry.getValue();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            //本节点已有线程在加载，有旧值直接返回
+            return entry != null ? (T) entry.getValue() : (T) join(existing);
+        }
+        try {
+            Object value = load(key, ttl, loader, entry);
+            future.complete(value);
+            return (T) value;
+        } catch (RuntimeException e) {
+            if (entry != null) {
+                //提前刷新失败（回源或写入redis异常），旧值还没过期，继续使用旧值，下次读取时再刷新
+                logger.warn("提前刷新失败，返回旧值，key：[{}]", key, e);
+                future.complete(entry.getValue());
+                return (T) entry.getValue();
+            }
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 删除KEY，下次读取时重新加载
+     *
+     * @param key
+     */
+    public void evict(String key) {
+        redisTemplate.delete(key);
+    }
+
+    private Object load(String key, long ttl, Callable<?> loader, CacheEntry stale) {
+        String leaseKey = key + LEASE_SUFFIX;
+        String holder = UUID.randomUUID().toString();
+        if (!tryLease(leaseKey, holder)) {
+            if (stale != null) {
+                //其他节点正在刷新
+                return stale.getValue();
+            }
+            CacheEntry loaded = await(key, leaseKey, holder);
+            if (loaded != null) {
+                return loaded.getValue();
+            }
+            //等待超时仍没有值，可能其他节点加载失败或redis异常，自己加载
+            logger.warn("等待其他节点加载超时，key：[{}]", key);
+        }
+        try {
+            //上次读取之后、获取租约之前，其他节点可能已经写入新值并释放了租约，再读一次，避免重复回源
+            CacheEntry current = (CacheEntry) redisTemplate.opsForValue().get(key);
+            if (current != null && (stale == null || current.getExpireAt() > stale.getExpireAt())) {
+                return current.getValue();
+            }
+            long start = System.currentTimeMillis();
+            Object value;
+            try {
+                value = loader.call();
+            } catch (Exception e) {
+                throw new Cache.ValueRetrievalException(key, loader, e);
+            }
+            long now = System.currentTimeMillis();
+            if (value != null) {
+                redisTemplate.opsForValue().set(key, new CacheEntry(value, now - start, now + ttl * 1000L),
+                        ttl, TimeUnit.SECONDS);
+            }
+            return value;
+        } finally {
+            stringRedisTemplate.execute(RELEASE_LEASE, Collections.singletonList(leaseKey), holder);
+        }
+    }
+
+    /**
+     * 等待持有租约的节点写入新值，租约提前释放（加载失败）时尝试自己获取租约
+     *
+     * @param key
+     * @param leaseKey
+     * @param holder
+     * @return 超时返回null；自己获取到租约时也返回null，由调用方重新读取后加载
+     */
+    private CacheEntry await(String key, String leaseKey, String holder) {
+        long deadline = System.currentTimeMillis() + leaseTime;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            CacheEntry entry = (CacheEntry) redisTemplate.opsForValue().get(key);
+            if (entry != null) {
+                return entry;
+            }
+            if (tryLease(leaseKey, holder)) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private boolean tryLease(String leaseKey, String holder) {
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(leaseKey, holder, leaseTime,
+                TimeUnit.MILLISECONDS);
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    /**
+     * XFetch：ln(random)为负数，上次加载越慢、离过期越近，提前刷新的概率越大
+     *
+     * @param entry
+     * @return
+     */
+    private boolean shouldRefresh(CacheEntry entry) {
+        if (beta <= 0) {
+            return false;
+        }
+        double random = 1D - ThreadLocalRandom.current().nextDouble();
+        return System.currentTimeMillis() - entry.getDelta() * beta * Math.log(random) >= entry.getExpireAt();
+    }
+
+    private static Object join(CompletableFuture<Object> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
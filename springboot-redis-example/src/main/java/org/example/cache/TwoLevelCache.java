@@ -0,0 +1,309 @@
+package org.example.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 二级缓存：本地caffeine在前，redis在后
+ * <p>
+ * 读先查本地，未命中再查redis并回填本地；写、删除同时修改两级，再通过redis发布失效通知，
+ * 其他节点收到后只删除本地缓存，下次读取时从redis重新加载。通知丢失时本地缓存最多在过期时间后恢复一致
+ * <p>
+ * 从redis读取期间本地缓存被删除过时（本节点写入或收到失效通知），读到的可能是旧值，按{@link #epoch()}判断后不回填本地缓存
+ * <p>
+ * 配置了{@link HotKeyDetector}时，每次读取都计入访问频率，只有热点KEY进入本地缓存，其余KEY每次读取redis；
+ * KEY移出热点时立即删除本地副本，之后的读取不会再命中本地
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+    private final String name;
+    /**
+     * 本地缓存，KEY统一转为字符串，与redis缓存的KEY一致，失效通知也按字符串传递
+     */
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> local;
+    private final Cache remote;
+    private final TwoLevelCacheManager cacheManager;
+    /**
+     * 热点识别，为null时所有KEY都进入本地缓存
+     */
+    private final HotKeyDetector hotKeyDetector;
+    /**
+     * 每次删除本地缓存时加1，在redis修改之后、删除本地之前递增
+     */
+    private final AtomicLong epoch = new AtomicLong();
+
+    TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<String, Object> local, Cache remote,
+                  TwoLevelCacheManager cacheManager, HotKeyDetector hotKeyDetector) {
+        super(false);
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.cacheManager = cacheManager;
+        this.hotKeyDetector = hotKeyDetector;
+        if (hotKeyDetector != null) {
+            hotKeyDetector.setDemotionListener(this::evictLocal);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return local;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        boolean admit = record(localKey);
+        Object value = local.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+        long before = epoch.get();
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper == null || wrapper.get() == null) {
+            return null;
+        }
+        value = wrapper.get();
+        if (admit) {
+            fillLocal(localKey, value, before);
+        }
+        return value;
+    }
+
+    /**
+     * 同一节点同一KEY只有一个线程加载，其余线程等待结果；开启热点识别时非热点KEY不合并加载。
+     * 加载期间对同一KEY的删除会等待加载完成后再删除，不需要按epoch判断
+     *
+     * @param key
+     * @param valueLoader
+     * @param <T>
+     * @return
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        if (!record(localKey)) {
+            return (T) loadRemote(key, valueLoader);
+        }
+        return (T) local.get(localKey, k -> loadRemote(key, valueLoader));
+    }
+
+    private Object loadRemote(Object key, Callable<?> valueLoader) {
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            return wrapper.get();
+        }
+        Object value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        if (value != null) {
+            remote.put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            evict(key);
+            return;
+        }
+        remote.put(key, value);
+        String localKey = localKey(key);
+        //并发读取可能刚从redis读到旧值，让它们不回填
+        epoch.incrementAndGet();
+        if (isHot(localKey)) {
+            local.put(localKey, value);
+        } else {
+            local.invalidate(localKey);
+        }
+        cacheManager.publishEvict(name, localKey);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        //不确定redis中最终的值，本地直接失效
+        String localKey = localKey(key);
+        invalidate(localKey);
+        cacheManager.publishEvict(name, localKey);
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        String localKey = localKey(key);
+        invalidate(localKey);
+        cacheManager.publishEvict(name, localKey);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = remote.evictIfPresent(key);
+        String localKey = localKey(key);
+        invalidate(localKey);
+        cacheManager.publishEvict(name, localKey);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        clearLocal();
+        cacheManager.publishClear(name);
+    }
+
+    /**
+     * 只查询本地缓存，供异步读取redis的场景使用
+     *
+     * @param key
+     * @return 未命中返回null
+     */
+    public Object getLocal(String key) {
+        record(key);
+        return local.getIfPresent(key);
+    }
+
+    /**
+     * 读取redis之前的本地缓存版本，回填时传入
+     *
+     * @return
+     */
+    public long epoch() {
+        return epoch.get();
+    }
+
+    /**
+     * 异步从redis读取后回填本地缓存，读取期间本地缓存被删除过时不回填
+     *
+     * @param key
+     * @param value
+     * @param epoch 读取redis之前的{@link #epoch()}
+     */
+    public void putLocal(String key, Object value, long epoch) {
+        if (isHot(key)) {
+            fillLocal(key, value, epoch);
+        }
+    }
+
+    /**
+     * 批量查询本地缓存，只返回命中的KEY，供绕过单KEY接口批量读取redis的场景使用
+     *
+     * @param keys
+     * @return
+     */
+    public Map<String, Object> getAllLocal(Collection<String> keys) {
+        if (hotKeyDetector != null) {
+            for (String key : keys) {
+                hotKeyDetector.record(key);
+            }
+        }
+        return local.getAllPresent(keys);
+    }
+
+    /**
+     * 批量从redis读取后回填本地缓存，读取期间本地缓存被删除过时不回填
+     *
+     * @param values
+     * @param epoch  读取redis之前的{@link #epoch()}
+     */
+    public void putAllLocal(Map<String, Object> values, long epoch) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (isHot(entry.getKey())) {
+                fillLocal(entry.getKey(), entry.getValue(), epoch);
+            }
+        }
+    }
+
+    /**
+     * 批量直接修改redis后调用，删除本节点的本地缓存，并用一条通知让其他节点删除
+     *
+     * @param keys
+     */
+    public void invalidateLocal(Collection<String> keys) {
+        epoch.incrementAndGet();
+        local.invalidateAll(keys);
+        cacheManager.publishEvict(name, keys);
+    }
+
+    /**
+     * 收到其他节点的失效通知或KEY移出热点，只删除本地缓存
+     *
+     * @param key
+     */
+    void evictLocal(String key) {
+        invalidate(key);
+    }
+
+    void clearLocal() {
+        epoch.incrementAndGet();
+        local.invalidateAll();
+    }
+
+    /**
+     * @return 未开启热点识别时为null
+     */
+    HotKeyDetector getHotKeyDetector() {
+        return hotKeyDetector;
+    }
+
+    private void invalidate(String key) {
+        epoch.incrementAndGet();
+        local.invalidate(key);
+    }
+
+    /**
+     * 回填本地缓存
+     * <p>
+     * 先写入再检查epoch：删除总是先递增epoch再删除本地，与回填交错时，要么回填看到epoch变化后删掉自己写入的值，
+     * 要么删除发生在写入之后，旧值不会留在本地缓存
+     *
+     * @param key
+     * @param value
+     * @param before 读取redis之前的epoch
+     */
+    private void fillLocal(String key, Object value, long before) {
+        if (epoch.get() != before) {
+            return;
+        }
+        local.put(key, value);
+        if (epoch.get() != before) {
+            local.asMap().remove(key, value);
+        }
+    }
+
+    /**
+     * 记录一次读取
+     *
+     * @param key
+     * @return 是否可以进入本地缓存
+     */
+    private boolean record(String key) {
+        return hotKeyDetector == null || hotKeyDetector.record(key);
+    }
+
+    private boolean isHot(String key) {
+        return hotKeyDetector == null || hotKeyDetector.isHot(key);
+    }
+
+    private static String localKey(Object key) {
+        return key instanceof String ? (String) key : String.valueOf(key);
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 二级缓存管理器，redis一级由{@link RedisCacheManager}提供，同时监听其他节点的失效通知
+ * <p>
+ * 失效通知格式：节点ID|缓存名称|KEY，批量失效时多个KEY以\0分隔，清空整个缓存时没有KEY部分，自己发出的通知忽略
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    /**
+     * 失效通知频道
+     */
+    public static final String CHANNEL = "cache:invalidate";
+    private static final char SEPARATOR = '|';
+    private static final char KEY_SEPARATOR = '\0';
+
+    private final RedisCacheManager redisCacheManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final long maximumSize;
+    private final long expireAfterWrite;
+    private final Supplier<HotKeyDetector> hotKeyDetectors;
+    /**
+     * 当前节点ID，用于忽略自己发出的通知
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param redisCacheManager
+     * @param stringRedisTemplate 发布失效通知
+     * @param maximumSize         每个缓存本地最多保留的条数
+     * @param expireAfterWrite    本地缓存写入后的过期时间（秒）
+     * @param hotKeyDetectors     为每个缓存创建热点识别，为null时所有KEY都进入本地缓存
+     */
+    public TwoLevelCacheManager(RedisCacheManager redisCacheManager, StringRedisTemplate stringRedisTemplate,
+                                long maximumSize, long expireAfterWrite, Supplier<HotKeyDetector> hotKeyDetectors) {
+        this.redisCacheManager = redisCacheManager;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.hotKeyDetectors = hotKeyDetectors;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache == null) {
+            cache = caches.computeIfAbsent(name, this::createCache);
+        }
+        return cache;
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    private TwoLevelCache createCache(String name) {
+        Cache remote = redisCacheManager.getCache(name);
+        com.github.benmanes.caffeine.cache.Cache<String, Object> local = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite, TimeUnit.SECONDS)
+                .build();
+        return new TwoLevelCache(name, local, remote, this, hotKeyDetectors == null ? null : hotKeyDetectors.get());
+    }
+
+    /**
+     * 各缓存当前的热点KEY
+     *
+     * @return 缓存名称 -> 热点KEY，未开启热点识别时为空
+     */
+    public Map<String, List<HotKeyDetector.HotKey>> hotKeys() {
+        Map<String, List<HotKeyDetector.HotKey>> result = new LinkedHashMap<>();
+        for (TwoLevelCache cache : caches.values()) {
+            HotKeyDetector detector = cache.getHotKeyDetector();
+            if (detector != null) {
+                result.put(cache.getName(), detector.hotKeys());
+            }
+        }
+        return result;
+    }
+
+    void publishEvict(String name, String key) {
+        publish(nodeId + SEPARATOR + name + SEPARATOR + key);
+    }
+
+    void publishEvict(String name, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(nodeId).append(SEPARATOR).append(name).append(SEPARATOR);
+        for (String key : keys) {
+            message.append(key).append(KEY_SEPARATOR);
+        }
+        message.setLength(message.length() - 1);
+        publish(message.toString());
+    }
+
+    void publishClear(String name) {
+        publish(nodeId + SEPARATOR + name);
+    }
+
+    /**
+     * 通知发布失败不影响本节点的修改，其他节点的本地缓存在过期后恢复一致
+     *
+     * @param message
+     */
+    private void publish(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, message);
+        } catch (Exception e) {
+            logger.warn("发布缓存失效通知失败，message：[{}]", message, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int first = body.indexOf(SEPARATOR);
+        if (first < 0 || body.startsWith(nodeId + SEPARATOR)) {
+            return;
+        }
+        int second = body.indexOf(SEPARATOR, first + 1);
+        String name = second < 0 ? body.substring(first + 1) : body.substring(first + 1, second);
+        TwoLevelCache cache = caches.get(name);
+        if (cache == null) {
+            //本节点没有使用过该缓存
+            return;
+        }
+        if (second < 0) {
+            cache.clearLocal();
+            return;
+        }
+        int start = second + 1;
+        int end;
+        while ((end = body.indexOf(KEY_SEPARATOR, start)) >= 0) {
+            cache.evictLocal(body.substring(start, end));
+            start = end + 1;
+        }
+        cache.evictLocal(body.substring(start));
+    }
+}
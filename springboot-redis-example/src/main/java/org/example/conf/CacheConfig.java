@@ -0,0 +1,154 @@
+package org.example.conf;
+
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.resource.ClientResources;
+import org.example.cache.ClientSideCache;
+import org.example.cache.HotKeyDetector;
+import org.example.cache.ReadThroughCache;
+import org.example.cache.TwoLevelCacheManager;
+import org.example.service.ExampleService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+
+/**
+ * 二级缓存配置
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    @Value("${cache.local.maximum-size:10000}")
+    private long maximumSize;
+    @Value("${cache.local.expire-after-write:60}")
+    private long expireAfterWrite;
+    @Value("${cache.redis.time-to-live:0}")
+    private long timeToLive;
+    @Value("${cache.hot-key.enabled:false}")
+    private boolean hotKeyEnabled;
+    @Value("${cache.hot-key.ttl:5}")
+    private long hotKeyTtl;
+    @Value("${cache.hot-key.threshold:100}")
+    private long hotKeyThreshold;
+    @Value("${cache.hot-key.top-k:32}")
+    private int hotKeyTopK;
+    @Value("${cache.hot-key.window:10}")
+    private long hotKeyWindow;
+    @Value("${cache.hot-key.sketch-width:4096}")
+    private int hotKeySketchWidth;
+    @Value("${cache.read-through.lease-time:3000}")
+    private long leaseTime;
+    @Value("${cache.read-through.beta:1.0}")
+    private double beta;
+    @Value("${cache.client-side.mode:default}")
+    private String clientSideMode;
+    @Value("${cache.client-side.prefixes:}")
+    private String[] clientSidePrefixes;
+    @Value("${cache.client-side.maximum-size:10000}")
+    private long clientSideMaximumSize;
+
+    /**
+     * redis一级与redisTemplate使用相同的值序列化方式；示例缓存不加KEY前缀、不过期，与直接用redisTemplate读写的KEY兼容。
+     * 开启热点识别时本地缓存只保留热点KEY，过期时间改为较短的cache.hot-key.ttl
+     *
+     * @param factory
+     * @param redisTemplate
+     * @param stringRedisTemplate
+     * @return
+     */
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisConnectionFactory factory, RedisTemplate<String, Object> redisTemplate,
+                                             StringRedisTemplate stringRedisTemplate) {
+        RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(redisTemplate.getValueSerializer()))
+                .entryTtl(Duration.ofSeconds(timeToLive))
+                .disableCachingNullValues();
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(RedisCacheWriter.nonLockingRedisCacheWriter(factory))
+                .cacheDefaults(defaults)
+                .withCacheConfiguration(ExampleService.CACHE_NAME, defaults.disableKeyPrefix().entryTtl(Duration.ZERO))
+                .build();
+        redisCacheManager.initializeCaches();
+        if (!hotKeyEnabled) {
+            return new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate, maximumSize, expireAfterWrite, null);
+        }
+        return new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate, maximumSize, hotKeyTtl,
+                () -> new HotKeyDetector(hotKeySketchWidth, hotKeyTopK, hotKeyThreshold, hotKeyWindow * 1000L));
+    }
+
+    /**
+     * 订阅其他节点的缓存失效通知
+     *
+     * @param factory
+     * @param cacheManager
+     * @return
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory,
+                                                                       TwoLevelCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(cacheManager, new ChannelTopic(TwoLevelCacheManager.CHANNEL));
+        return container;
+    }
+
+    /**
+     * 读穿缓存，防止热点KEY过期时大量请求同时回源
+     *
+     * @param redisTemplate
+     * @param stringRedisTemplate
+     * @return
+     */
+    @Bean
+    public ReadThroughCache readThroughCache(RedisTemplate<String, Object> redisTemplate,
+                                             StringRedisTemplate stringRedisTemplate) {
+        return new ReadThroughCache(redisTemplate, stringRedisTemplate, leaseTime, beta);
+    }
+
+    /**
+     * 客户端缓存，需要redis 6以上，默认不开启
+     *
+     * @param resources
+     * @param redisProperties
+     * @param redisTemplate
+     * @return
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    @ConditionalOnProperty(name = "cache.client-side.enabled", havingValue = "true")
+    public ClientSideCache clientSideCache(ClientResources resources, RedisProperties redisProperties,
+                                           RedisTemplate<String, Object> redisTemplate) {
+        RedisURI.Builder builder = RedisURI.builder()
+                .withHost(redisProperties.getHost())
+                .withPort(redisProperties.getPort())
+                .withDatabase(redisProperties.getDatabase())
+                .withSsl(redisProperties.isSsl());
+        if (StringUtils.hasText(redisProperties.getPassword())) {
+            builder.withPassword(redisProperties.getPassword().toCharArray());
+        }
+        if (redisProperties.getTimeout() != null) {
+            builder.withTimeout(redisProperties.getTimeout());
+        }
+        return new ClientSideCache(resources, builder.build(),
+                (RedisSerializer<Object>) redisTemplate.getValueSerializer(),
+                "broadcast".equals(clientSideMode), clientSidePrefixes, clientSideMaximumSize);
+    }
+}
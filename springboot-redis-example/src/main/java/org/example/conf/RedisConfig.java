@@ -4,12 +4,21 @@ import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import org.example.common.serializer.KryoRedisSerializer;
+import org.example.store.ChunkedValueStore;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.ClassUtils;
 
 /**
  * redis配置
@@ -21,29 +30,105 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 public class RedisConfig {
 
 
+    /**
+     * 值序列化方式：jackson（默认）、kryo
+     */
+    @Value("${redis.serializer:jackson}")
+    private String serializer;
+    /**
+     * kryo额外注册的类名，所有节点顺序必须一致
+     */
+    @Value("${redis.kryo.classes:}")
+    private String[] kryoClasses;
+
+    @Value("${redis.chunk.size:65536}")
+    private int chunkSize;
+    @Value("${redis.chunk.grace:60}")
+    private long chunkGrace;
+    @Value("${redis.chunk.pool-size:16}")
+    private int chunkPoolSize;
+
     @Bean
-    @SuppressWarnings("all")
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory factory) {
         RedisTemplate<String, Object> template = new RedisTemplate<String, Object>();
-        ObjectMapper objectMapper = new ObjectMapper();
         template.setConnectionFactory(factory);
-        Jackson2JsonRedisSerializer jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer(Object.class);
-        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        //漏洞风险  已过时 用activateDefaultTyping替换
-        //objectMapper.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
-        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
-        jackson2JsonRedisSerializer.setObjectMapper(objectMapper);
+        RedisSerializer<Object> valueSerializer = valueSerializer();
         StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
         // key采用String的序列化方式
         template.setKeySerializer(stringRedisSerializer);
         // hash的key也采用String的序列化方式
         template.setHashKeySerializer(stringRedisSerializer);
-        // value序列化方式采用jackson
-        template.setValueSerializer(jackson2JsonRedisSerializer);
-        // hash的value序列化方式采用jackson
-        template.setHashValueSerializer(jackson2JsonRedisSerializer);
+        // value序列化方式
+        template.setValueSerializer(valueSerializer);
+        // hash的value序列化方式
+        template.setHashValueSerializer(valueSerializer);
         template.afterPropertiesSet();
         return template;
     }
 
+    /**
+     * 响应式操作模板，KEY、值的序列化方式与redisTemplate一致，两者读写的数据互通。
+     * lettuce连接工厂同时实现了响应式接口，所有操作共享同一个连接，不占用线程等待结果
+     *
+     * @param factory
+     * @return
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(ReactiveRedisConnectionFactory factory) {
+        RedisSerializer<Object> valueSerializer = valueSerializer();
+        StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
+        RedisSerializationContext<String, Object> context = RedisSerializationContext
+                .<String, Object>newSerializationContext(stringRedisSerializer)
+                .value(valueSerializer)
+                .hashKey(stringRedisSerializer)
+                .hashValue(valueSerializer)
+                .build();
+        return new ReactiveRedisTemplate<>(factory, context);
+    }
+
+    /**
+     * 大值分块存储
+     *
+     * @param stringRedisTemplate
+     * @return
+     */
+    @Bean
+    public ChunkedValueStore chunkedValueStore(StringRedisTemplate stringRedisTemplate) {
+        return new ChunkedValueStore(stringRedisTemplate, chunkSize, chunkGrace, chunkPoolSize);
+    }
+
+    private RedisSerializer<Object> valueSerializer() {
+        return "kryo".equals(serializer) ? kryoRedisSerializer() : jackson2JsonRedisSerializer();
+    }
+
+    /**
+     * kryo序列化，只能读写注册过的类
+     *
+     * @return
+     */
+    private RedisSerializer<Object> kryoRedisSerializer() {
+        Class<?>[] classes = new Class<?>[kryoClasses.length];
+        for (int i = 0; i < kryoClasses.length; i++) {
+            classes[i] = ClassUtils.resolveClassName(kryoClasses[i].trim(), ClassUtils.getDefaultClassLoader());
+        }
+        return new KryoRedisSerializer(1024, classes);
+    }
+
+    /**
+     * jackson序列化，每个值都带有类名，体积较大
+     *
+     * @return
+     */
+    @SuppressWarnings("all")
+    private RedisSerializer<Object> jackson2JsonRedisSerializer() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        Jackson2JsonRedisSerializer jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer(Object.class);
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        //漏洞风险  已过时 用activateDefaultTyping替换
+        //objectMapper.enableDefaultTyping(ObjectMapper.DefaultTyping.NON_FINAL);
+        objectMapper.activateDefaultTyping(LaissezFaireSubTypeValidator.instance, ObjectMapper.DefaultTyping.NON_FINAL);
+        jackson2JsonRedisSerializer.setObjectMapper(objectMapper);
+        return jackson2JsonRedisSerializer;
+    }
+
 }
@@ -1,12 +1,26 @@
 package org.example.controller;
 
 import org.example.common.response.ResultEntity;
+import org.example.dto.KeyValueDTO;
 import org.example.service.ExampleService;
+import org.example.service.ReactiveExampleService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 示例控制器
@@ -21,6 +35,9 @@ public class ExampleController {
     @Autowired
     ExampleService exampleService;
 
+    @Autowired
+    ReactiveExampleService reactiveExampleService;
+
     @PostMapping("/set")
     public ResultEntity set(String key, String value){
         exampleService.set(key, value);
@@ -33,9 +50,99 @@ public class ExampleController {
         return ResultEntity.ok(val);
     }
 
+    @GetMapping("/tracked/get")
+    public ResultEntity<String> getTracked(String key) {
+        return ResultEntity.ok(exampleService.getTracked(key));
+    }
+
+    @GetMapping("/tracked/stats")
+    public ResultEntity<Map<String, Long>> trackedStats() {
+        return ResultEntity.ok(exampleService.trackedStats());
+    }
+
+    @PostMapping("/large")
+    public ResultEntity<Long> setLarge(String key, @RequestParam(defaultValue = "0") long ttl,
+                                         HttpServletRequest request) throws IOException {
+        return ResultEntity.ok(exampleService.setLarge(key, request.getInputStream(), ttl));
+    }
+
+    @GetMapping("/large")
+    public void getLarge(String key, HttpServletResponse response) throws IOException {
+        InputStream in = exampleService.getLarge(key);
+        if (in == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType("application/octet-stream");
+        try (InputStream stream = in) {
+            StreamUtils.copy(stream, response.getOutputStream());
+        }
+    }
+
+    @PostMapping("/large/del")
+    public ResultEntity<Boolean> delLarge(String key) {
+        return ResultEntity.ok(exampleService.delLarge(key));
+    }
+
+    @GetMapping("/load")
+    public ResultEntity<String> load(String key) {
+        return ResultEntity.ok(exampleService.load(key));
+    }
+
     @PostMapping("/del")
     public ResultEntity set(String key){
         exampleService.del(key);
         return ResultEntity.ok();
     }
+
+    @PostMapping("/mget")
+    public ResultEntity<Map<String, String>> mget(@RequestBody List<String> keys) {
+        return ResultEntity.ok(exampleService.mget(keys));
+    }
+
+    @PostMapping("/mset")
+    public ResultEntity mset(@RequestBody List<KeyValueDTO> items) {
+        exampleService.mset(items);
+        return ResultEntity.ok();
+    }
+
+    @PostMapping("/mdel")
+    public ResultEntity<Long> mdel(@RequestBody List<String> keys) {
+        return ResultEntity.ok(exampleService.mdel(keys));
+    }
+
+    @PostMapping("/async/set")
+    public CompletableFuture<ResultEntity<Void>> setAsync(String key, String value) {
+        return exampleService.setAsync(key, value).thenApply(v -> ResultEntity.ok());
+    }
+
+    @GetMapping("/async/get")
+    public CompletableFuture<ResultEntity<String>> getAsync(String key) {
+        return exampleService.getAsync(key).thenApply(ResultEntity::ok);
+    }
+
+    @PostMapping("/async/del")
+    public CompletableFuture<ResultEntity<Void>> delAsync(String key) {
+        return exampleService.delAsync(key).thenApply(v -> ResultEntity.ok());
+    }
+
+    @PostMapping("/reactive/set")
+    public Mono<ResultEntity<Void>> setReactive(String key, String value) {
+        return reactiveExampleService.set(key, value).thenReturn(ResultEntity.ok());
+    }
+
+    @GetMapping("/reactive/get")
+    public Mono<ResultEntity<String>> getReactive(String key) {
+        return reactiveExampleService.get(key).map(ResultEntity::ok);
+    }
+
+    @PostMapping("/reactive/del")
+    public Mono<ResultEntity<Void>> delReactive(String key) {
+        return reactiveExampleService.del(key).thenReturn(ResultEntity.ok());
+    }
+
+    @PostMapping("/reactive/mget")
+    public Mono<ResultEntity<Map<String, String>>> mgetReactive(@RequestBody List<String> keys) {
+        return reactiveExampleService.mget(keys).map(ResultEntity::ok);
+    }
 }
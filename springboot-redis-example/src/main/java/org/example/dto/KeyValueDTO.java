@@ -0,0 +1,40 @@
+package org.example.dto;
+
+/**
+ * 批量设置的一项
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class KeyValueDTO {
+    private String key;
+    private String value;
+    /**
+     * 过期时间（秒），小于等于0表示不过期
+     */
+    private long ttl;
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public void setValue(String value) {
+        this.value = value;
+    }
+
+    public long getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(long ttl) {
+        this.ttl = ttl;
+    }
+}
@@ -1,9 +1,35 @@
 package org.example.service;
 
+import org.example.cache.ClientSideCache;
+import org.example.cache.ReadThroughCache;
+import org.example.cache.TwoLevelCache;
+import org.example.dto.KeyValueDTO;
+import org.example.store.ChunkedValueStore;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * redis测试业务
  *
@@ -12,32 +38,81 @@ import org.springframework.stereotype.Service;
  */
 @Service
 public class ExampleService {
+    /**
+     * 示例缓存，redis中的KEY不加前缀
+     */
+    public static final String CACHE_NAME = "example";
+    /**
+     * 读穿缓存的KEY前缀，值带有加载耗时等信息，与普通KEY分开
+     */
+    private static final String LOAD_PREFIX = "load:";
+
+    /**
+     * 批量操作每次发送给redis的最大KEY数量，避免单条命令过大阻塞redis
+     */
+    @Value("${redis.batch.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * 读穿缓存过期时间（秒）
+     */
+    @Value("${redis.load.ttl:60}")
+    private long loadTtl;
+
+    @Autowired
+    CacheManager cacheManager;
+
     @Autowired
     RedisTemplate<String, Object> redisTemplate;
 
+    @Autowired
+    ReadThroughCache readThroughCache;
+
+    @Autowired
+    ReactiveExampleService reactiveExampleService;
+
+    @Autowired
+    ChunkedValueStore chunkedValueStore;
+
+    /**
+     * 客户端缓存，cache.client-side.enabled=true时才有
+     */
+    @Autowired
+    ObjectProvider<ClientSideCache> clientSideCache;
+
     /**
-     * set一个值
+     * 本地缓存+redis二级缓存
+     */
+    private TwoLevelCache cache;
+
+    @PostConstruct
+    public void init() {
+        cache = (TwoLevelCache) cacheManager.getCache(CACHE_NAME);
+    }
+
+    /**
+     * set一个值，其他节点的本地缓存通过失效通知删除
      *
      * @param key
      * @param value
      * @return
      */
     public void set(String key, String value) {
-        redisTemplate.opsForValue().set(key, value);
+        cache.put(key, value);
     }
 
     /**
-     * 查询值
+     * 查询值，本地缓存命中时不访问redis
      *
      * @param key
      * @return
      */
     public String get(String key) {
-        Object object = redisTemplate.opsForValue().get(key);
-        if (object == null) {
+        Cache.ValueWrapper wrapper = cache.get(key);
+        if (wrapper == null || wrapper.get() == null) {
             return "";
         }
-        return object.toString();
+        return wrapper.get().toString();
     }
 
     /**
@@ -46,6 +121,224 @@ public class ExampleService {
      * @param key
      */
     public void del(String key) {
-        redisTemplate.delete(key);
+        cache.evict(key);
+    }
+
+    /**
+     * 通过客户端缓存查询，由redis推送失效消息保证一致；未开启客户端缓存时与{@link #get(String)}相同
+     *
+     * @param key
+     * @return
+     */
+    public String getTracked(String key) {
+        ClientSideCache tracked = clientSideCache.getIfAvailable();
+        if (tracked == null) {
+            return get(key);
+        }
+        Object value = tracked.get(key);
+        return value == null ? "" : value.toString();
+    }
+
+    /**
+     * 客户端缓存统计
+     *
+     * @return 未开启时为空
+     */
+    public Map<String, Long> trackedStats() {
+        ClientSideCache tracked = clientSideCache.getIfAvailable();
+        return tracked == null ? Collections.emptyMap() : tracked.stats();
+    }
+
+    /**
+     * 异步set，不占用调用线程等待redis返回
+     * <p>
+     * 以下异步方法的回调在lettuce的IO线程上执行，后续处理不能有阻塞调用，否则需要用thenApplyAsync切换线程
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public CompletableFuture<Void> setAsync(String key, String value) {
+        return reactiveExampleService.set(key, value).toFuture();
+    }
+
+    /**
+     * 异步查询
+     *
+     * @param key
+     * @return
+     */
+    public CompletableFuture<String> getAsync(String key) {
+        return reactiveExampleService.get(key).toFuture();
+    }
+
+    /**
+     * 异步删除
+     *
+     * @param key
+     * @return
+     */
+    public CompletableFuture<Void> delAsync(String key) {
+        return reactiveExampleService.del(key).toFuture();
+    }
+
+    /**
+     * 批量查询，本地缓存未命中的KEY用MGET一次取回，不存在的KEY返回空字符串
+     *
+     * @param keys
+     * @return 按请求顺序
+     */
+    public Map<String, String> mget(Collection<String> keys) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<String, Object> hits = cache.getAllLocal(distinct);
+        List<String> misses = new ArrayList<>(distinct.size() - hits.size());
+        for (String key : distinct) {
+            if (!hits.containsKey(key)) {
+                misses.add(key);
+            }
+        }
+        //在读取redis之前取得，读取期间本地缓存被删除过时不回填
+        long epoch = cache.epoch();
+        Map<String, Object> loaded = new HashMap<>(misses.size() * 2);
+        for (List<String> chunk : chunk(misses)) {
+            List<Object> values = redisTemplate.opsForValue().multiGet(chunk);
+            for (int i = 0; i < chunk.size(); i++) {
+                Object value = values == null ? null : values.get(i);
+                if (value != null) {
+                    loaded.put(chunk.get(i), value);
+                }
+            }
+        }
+        cache.putAllLocal(loaded, epoch);
+        Map<String, String> result = new LinkedHashMap<>(distinct.size() * 2);
+        for (String key : distinct) {
+            Object value = hits.get(key);
+            if (value == null) {
+                value = loaded.get(key);
+            }
+            result.put(key, value == null ? "" : value.toString());
+        }
+        return result;
+    }
+
+    /**
+     * 批量设置，每一批用管道发送，一次往返；每个KEY可以有不同的过期时间
+     *
+     * @param items
+     */
+    @SuppressWarnings("unchecked")
+    public void mset(List<KeyValueDTO> items) {
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        List<String> keys = new ArrayList<>(items.size());
+        for (List<KeyValueDTO> chunk : chunk(items)) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (KeyValueDTO item : chunk) {
+                    byte[] key = keySerializer.serialize(item.getKey());
+                    byte[] value = valueSerializer.serialize(item.getValue());
+                    if (item.getTtl() > 0) {
+                        connection.stringCommands().set(key, value, Expiration.seconds(item.getTtl()),
+                                RedisStringCommands.SetOption.upsert());
+                    } else {
+                        connection.stringCommands().set(key, value);
+                    }
+                }
+                return null;
+            });
+            for (KeyValueDTO item : chunk) {
+                keys.add(item.getKey());
+            }
+        }
+        cache.invalidateLocal(keys);
+    }
+
+    /**
+     * 批量删除，UNLINK在redis后台线程释放内存，删除大KEY不阻塞redis
+     *
+     * @param keys
+     * @return 实际删除的KEY数量
+     */
+    public long mdel(Collection<String> keys) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        long deleted = 0L;
+        for (List<String> chunk : chunk(distinct)) {
+            Long count = redisTemplate.unlink(chunk);
+            if (count != null) {
+                deleted += count;
+            }
+        }
+        cache.invalidateLocal(distinct);
+        return deleted;
+    }
+
+    /**
+     * 分块写入大值，不经过二级缓存
+     *
+     * @param key
+     * @param in
+     * @param ttl 过期时间（秒），小于等于0表示不过期
+     * @return 写入的字节数
+     * @throws IOException
+     */
+    public long setLarge(String key, InputStream in, long ttl) throws IOException {
+        return chunkedValueStore.write(key, in, ttl);
+    }
+
+    /**
+     * 打开大值的输入流，读取时逐块获取
+     *
+     * @param key
+     * @return 不存在返回null
+     */
+    public InputStream getLarge(String key) {
+        return chunkedValueStore.openInputStream(key);
+    }
+
+    /**
+     * 删除大值
+     *
+     * @param key
+     * @return
+     */
+    public boolean delLarge(String key) {
+        return chunkedValueStore.delete(key);
+    }
+
+    /**
+     * 读穿查询，缓存不存在时从数据源加载，同一KEY在所有节点同时只加载一次，热点KEY在过期前提前刷新
+     *
+     * @param key
+     * @return
+     */
+    public String load(String key) {
+        String value = readThroughCache.get(LOAD_PREFIX + key, loadTtl, () -> loadFromSource(key));
+        return value == null ? "" : value;
+    }
+
+    /**
+     * 模拟较慢的数据源查询
+     *
+     * @param key
+     * @return
+     * @throws InterruptedException
+     */
+    private String loadFromSource(String key) throws InterruptedException {
+        Thread.sleep(200L);
+        return key + "-" + System.currentTimeMillis();
+    }
+
+    /**
+     * 按chunkSize分批
+     *
+     * @param list
+     * @param <T>
+     * @return
+     */
+    private <T> List<List<T>> chunk(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>((list.size() + chunkSize - 1) / chunkSize);
+        for (int i = 0; i < list.size(); i += chunkSize) {
+            chunks.add(list.subList(i, Math.min(i + chunkSize, list.size())));
+        }
+        return chunks;
     }
 }
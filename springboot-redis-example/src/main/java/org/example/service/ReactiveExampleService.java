@@ -0,0 +1,162 @@
+package org.example.service;
+
+import org.example.cache.TwoLevelCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * redis测试业务的响应式版本，请求线程发出命令后立即返回，结果由lettuce的IO线程回调
+ * <p>
+ * 与{@link ExampleService}共用二级缓存的本地部分：读先查本地，写、删除后删除本地并通知其他节点。
+ * 发布失效通知是阻塞调用，切换到boundedElastic线程执行，不能占用lettuce的IO线程
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@Service
+public class ReactiveExampleService {
+
+    @Autowired
+    CacheManager cacheManager;
+
+    @Autowired
+    ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+
+    /**
+     * 批量操作每次发送给redis的最大KEY数量，与{@link ExampleService}一致
+     */
+    @Value("${redis.batch.chunk-size:500}")
+    private int chunkSize;
+
+    private TwoLevelCache cache;
+
+    @PostConstruct
+    public void init() {
+        cache = (TwoLevelCache) cacheManager.getCache(ExampleService.CACHE_NAME);
+    }
+
+    /**
+     * set一个值
+     *
+     * @param key
+     * @param value
+     * @return
+     */
+    public Mono<Void> set(String key, String value) {
+        return reactiveRedisTemplate.opsForValue().set(key, value)
+                .then(invalidateLocal(Collections.singletonList(key)));
+    }
+
+    /**
+     * 查询值，本地缓存命中时不访问redis
+     *
+     * @param key
+     * @return
+     */
+    public Mono<String> get(String key) {
+        Object local = cache.getLocal(key);
+        if (local != null) {
+            return Mono.just(local.toString());
+        }
+        //在发出读取之前取得，读取期间本地缓存被删除过时不回填
+        long epoch = cache.epoch();
+        return reactiveRedisTemplate.opsForValue().get(key)
+                .doOnNext(value -> cache.putLocal(key, value, epoch))
+                .map(Object::toString)
+                .defaultIfEmpty("");
+    }
+
+    /**
+     * 删除
+     *
+     * @param key
+     * @return
+     */
+    public Mono<Void> del(String key) {
+        return reactiveRedisTemplate.unlink(key)
+                .then(invalidateLocal(Collections.singletonList(key)));
+    }
+
+    /**
+     * 批量查询，本地缓存未命中的KEY按chunkSize分批用MGET取回，不存在的KEY返回空字符串。
+     * 上一批返回后才发送下一批，不会同时把所有KEY压给redis
+     *
+     * @param keys
+     * @return 按请求顺序
+     */
+    public Mono<Map<String, String>> mget(Collection<String> keys) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        Map<String, Object> hits = cache.getAllLocal(distinct);
+        List<String> misses = new ArrayList<>(distinct.size() - hits.size());
+        for (String key : distinct) {
+            if (!hits.containsKey(key)) {
+                misses.add(key);
+            }
+        }
+        long epoch = cache.epoch();
+        return Flux.fromIterable(chunk(misses))
+                .concatMap(chunk -> reactiveRedisTemplate.opsForValue().multiGet(chunk)
+                        .map(values -> {
+                            Map<String, Object> found = new HashMap<>(chunk.size() * 2);
+                            for (int i = 0; i < chunk.size(); i++) {
+                                Object value = values.get(i);
+                                if (value != null) {
+                                    found.put(chunk.get(i), value);
+                                }
+                            }
+                            return found;
+                        }))
+                .reduceWith(() -> new HashMap<String, Object>(misses.size() * 2), (loaded, found) -> {
+                    loaded.putAll(found);
+                    return loaded;
+                })
+                .map(loaded -> {
+                    cache.putAllLocal(loaded, epoch);
+                    Map<String, String> result = new LinkedHashMap<>(distinct.size() * 2);
+                    for (String key : distinct) {
+                        Object value = hits.get(key);
+                        if (value == null) {
+                            value = loaded.get(key);
+                        }
+                        result.put(key, value == null ? "" : value.toString());
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * 按chunkSize分批
+     *
+     * @param list
+     * @param <T>
+     * @return
+     */
+    private <T> List<List<T>> chunk(List<T> list) {
+        List<List<T>> chunks = new ArrayList<>((list.size() + chunkSize - 1) / chunkSize);
+        for (int i = 0; i < list.size(); i += chunkSize) {
+            chunks.add(list.subList(i, Math.min(i + chunkSize, list.size())));
+        }
+        return chunks;
+    }
+
+    private Mono<Void> invalidateLocal(List<String> keys) {
+        return Mono.<Void>fromRunnable(() -> cache.invalidateLocal(keys))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
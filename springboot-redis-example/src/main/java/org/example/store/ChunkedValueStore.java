@@ -0,0 +1,292 @@
+package org.example.store;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 大值分块存储
+ * <p>
+ * 一个几MB的值用一条SET写入时，redis单线程在处理这条命令期间无法响应其他客户端，序列化时还要在堆上生成完整的字节数组。
+ * 这里把值以流的方式写入固定大小的块，每块一条SET，块之间穿插其他客户端的命令；读取时按需逐块GET，内存中同时只有一块
+ * <p>
+ * 存储结构：KEY本身是清单（hash：version、chunks、size），块存放在{@code KEY:chunk:版本:序号}。
+ * 覆盖写入时先写新版本的块，最后替换清单，正在读取旧版本的请求不受影响；旧版本的块在{@code grace}秒后过期删除。
+ * 写入期间块带有临时过期时间，写入中途进程退出时不会留下永久的块；替换清单的脚本再把块改为正式的过期时间或不过期
+ * <p>
+ * 替换、删除清单的lua脚本按清单KEY拼接块的KEY，redis集群下KEY需要用{@code {}}指定hash tag，使块与清单在同一个槽
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class ChunkedValueStore {
+    private static final String VERSION = "version";
+    private static final String CHUNKS = "chunks";
+    private static final RedisScript<Long> COMMIT =
+            RedisScript.of(new ClassPathResource("lua/chunk_commit.lua"), Long.class);
+    private static final RedisScript<Long> DELETE =
+            RedisScript.of(new ClassPathResource("lua/chunk_delete.lua"), Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final int chunkSize;
+    private final long grace;
+    /**
+     * 块缓冲区池，写入时整块直接传给SET，不再复制
+     */
+    private final BlockingQueue<byte[]> buffers;
+
+    /**
+     * @param stringRedisTemplate
+     * @param chunkSize           每块字节数
+     * @param grace               被覆盖或删除的旧版本块保留的时间（秒），需大于读取一个值的最长耗时；
+     *                            不过期的值写入期间块的临时过期时间也是这个值，需大于写入一个值的最长耗时
+     * @param poolSize            块缓冲区池大小
+     */
+    public ChunkedValueStore(StringRedisTemplate stringRedisTemplate, int chunkSize, long grace, int poolSize) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.chunkSize = chunkSize;
+        this.grace = grace;
+        this.buffers = new ArrayBlockingQueue<>(poolSize);
+    }
+
+    /**
+     * 从输入流读取并分块写入
+     *
+     * @param key
+     * @param in
+     * @param ttl 过期时间（秒），小于等于0表示不过期
+     * @return 写入的字节数
+     * @throws IOException
+     */
+    public long write(String key, InputStream in, long ttl) throws IOException {
+        try (ChunkOutputStream out = new ChunkOutputStream(key, ttl)) {
+            byte[] buffer = new byte[8192];
+            int n;
+            try {
+                while ((n = in.read(buffer)) >= 0) {
+                    out.write(buffer, 0, n);
+                }
+            } catch (IOException | RuntimeException e) {
+                out.abort();
+                throw e;
+            }
+            return out.size;
+        }
+    }
+
+    /**
+     * 打开输入流，读取时才逐块从redis获取
+     *
+     * @param key
+     * @return 不存在返回null
+     */
+    public InputStream openInputStream(String key) {
+        Map<Object, Object> manifest = stringRedisTemplate.opsForHash().entries(key);
+        if (manifest.isEmpty()) {
+            return null;
+        }
+        return new ChunkInputStream(key, (String) manifest.get(VERSION), Integer.parseInt((String) manifest.get(CHUNKS)));
+    }
+
+    /**
+     * 删除清单，块在grace秒后过期，正在读取的请求可以读完
+     *
+     * @param key
+     * @return
+     */
+    public boolean delete(String key) {
+        Long deleted = stringRedisTemplate.execute(DELETE, Collections.singletonList(key), String.valueOf(grace));
+        return deleted != null && deleted > 0;
+    }
+
+    private static byte[] chunkKey(String key, String version, int index) {
+        return (key + ":chunk:" + version + ":" + index).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] borrow() {
+        byte[] buffer = buffers.poll();
+        return buffer != null ? buffer : new byte[chunkSize];
+    }
+
+    private void release(byte[] buffer) {
+        buffers.offer(buffer);
+    }
+
+    /**
+     * 写满一块就写入redis，关闭时写入清单
+     */
+    private class ChunkOutputStream extends OutputStream {
+        private final String key;
+        private final long ttl;
+        private final String version = UUID.randomUUID().toString().replace("-", "");
+        private byte[] buffer = borrow();
+        private int position;
+        private int chunks;
+        private long size;
+        private boolean closed;
+
+        ChunkOutputStream(String key, long ttl) {
+            this.key = key;
+            this.ttl = ttl;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (position == chunkSize) {
+                flushChunk();
+            }
+            buffer[position++] = (byte) b;
+            size++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (position == chunkSize) {
+                    flushChunk();
+                }
+                int n = Math.min(len, chunkSize - position);
+                System.arraycopy(b, off, buffer, position, n);
+                position += n;
+                off += n;
+                len -= n;
+                size += n;
+            }
+        }
+
+        private void flushChunk() {
+            byte[] value = position == chunkSize ? buffer : Arrays.copyOf(buffer, position);
+            byte[] chunkKey = chunkKey(key, version, chunks);
+            //同步写入，返回后缓冲区可以复用
+            //临时过期时间，提交清单时改为正式的
+            long expire = ttl > 0 ? ttl + grace : grace;
+            stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                    connection.stringCommands().setEx(chunkKey, expire, value));
+            chunks++;
+            position = 0;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            try {
+                if (position > 0) {
+                    flushChunk();
+                }
+                commit();
+            } catch (RuntimeException e) {
+                abort();
+                throw e;
+            }
+            closed = true;
+            release(buffer);
+            buffer = null;
+        }
+
+        /**
+         * 替换清单，新版本的块改为正式的过期时间，旧版本的块延迟过期；
+         * 有块在提交前已过期时脚本报错，清单保持不变
+         */
+        private void commit() {
+            stringRedisTemplate.execute(COMMIT, Collections.singletonList(key), version,
+                    String.valueOf(chunks), String.valueOf(size), String.valueOf(ttl), String.valueOf(grace));
+        }
+
+        /**
+         * 写入失败，已写入的块立即删除，清单保持不变
+         */
+        void abort() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            List<byte[]> keys = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                keys.add(chunkKey(key, version, i));
+            }
+            if (!keys.isEmpty()) {
+                stringRedisTemplate.execute((RedisCallback<Object>) connection ->
+                        connection.keyCommands().unlink(keys.toArray(new byte[0][])));
+            }
+            release(buffer);
+            buffer = null;
+        }
+    }
+
+    /**
+     * 逐块读取，当前块读完才获取下一块
+     */
+    private class ChunkInputStream extends InputStream {
+        private final String key;
+        private final String version;
+        private final int chunks;
+        private byte[] chunk;
+        private int position;
+        private int index;
+
+        ChunkInputStream(String key, String version, int chunks) {
+            this.key = key;
+            this.version = version;
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!ensureChunk()) {
+                return -1;
+            }
+            return chunk[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!ensureChunk()) {
+                return -1;
+            }
+            int n = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        /**
+         * @return 没有更多数据时返回false
+         * @throws IOException 块已不存在（读取时间超过grace，或已过期）
+         */
+        private boolean ensureChunk() throws IOException {
+            while (chunk == null || position == chunk.length) {
+                if (index == chunks) {
+                    return false;
+                }
+                byte[] chunkKey = chunkKey(key, version, index);
+                chunk = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                        connection.stringCommands().get(chunkKey));
+                if (chunk == null) {
+                    throw new IOException("Chunk " + index + " of " + key + " no longer exists");
+                }
+                position = 0;
+                index++;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+-- 替换大值清单：新版本的块从写入时的临时过期时间改为正式的，旧版本的块延迟过期
+-- 块的键名为 清单键名:chunk:版本:序号
+-- KEYS[1] 清单键名
+-- ARGV[1] 新版本
+-- ARGV[2] 块数
+-- ARGV[3] 总字节数
+-- ARGV[4] 过期时间（秒），小于等于0表示不过期
+-- ARGV[5] 块比清单多保留的时间（秒），也是旧版本的块保留的时间
+local ttl = tonumber(ARGV[4])
+local grace = tonumber(ARGV[5])
+local prefix = KEYS[1] .. ':chunk:' .. ARGV[1] .. ':'
+for i = 0, tonumber(ARGV[2]) - 1 do
+    -- 写入时所有块都带有临时过期时间，返回0说明块已经过期
+    local ok
+    if ttl > 0 then
+        -- 块比清单晚过期，读取时不会出现清单还在、块已过期的情况
+        ok = redis.call('expire', prefix .. i, ttl + grace)
+    else
+        ok = redis.call('persist', prefix .. i)
+    end
+    if ok == 0 then
+        return redis.error_reply('chunk ' .. i .. ' of ' .. KEYS[1] .. ' expired before commit')
+    end
+end
+local old = redis.call('hmget', KEYS[1], 'version', 'chunks')
+redis.call('hset', KEYS[1], 'version', ARGV[1], 'chunks', ARGV[2], 'size', ARGV[3])
+if ttl > 0 then
+    redis.call('expire', KEYS[1], ttl)
+else
+    redis.call('persist', KEYS[1])
+end
+if old[1] then
+    local oldPrefix = KEYS[1] .. ':chunk:' .. old[1] .. ':'
+    for i = 0, tonumber(old[2]) - 1 do
+        redis.call('expire', oldPrefix .. i, grace)
+    end
+end
+return 1
@@ -0,0 +1,15 @@
+-- 删除大值清单，块延迟过期，正在读取的请求可以读完
+-- 块的键名为 清单键名:chunk:版本:序号
+-- KEYS[1] 清单键名
+-- ARGV[1] 块保留的时间（秒）
+-- 清单不存在返回0
+local old = redis.call('hmget', KEYS[1], 'version', 'chunks')
+if not old[1] then
+    return 0
+end
+redis.call('unlink', KEYS[1])
+local prefix = KEYS[1] .. ':chunk:' .. old[1] .. ':'
+for i = 0, tonumber(old[2]) - 1 do
+    redis.call('expire', prefix .. i, ARGV[1])
+end
+return 1
@@ -0,0 +1,8 @@
+-- 释放重新加载租约：比较持有者后删除，租约已过期并被其他节点获取时不删除
+-- 返回1表示已释放，0表示租约已不属于该持有者
+-- KEYS[1] 租约键名
+-- ARGV[1] 租约持有者
+if redis.call('get', KEYS[1]) == ARGV[1] then
+    return redis.call('del', KEYS[1])
+end
+return 0
@@ -0,0 +1,109 @@
+package org.example.benchmark;
+
+import org.example.cache.CacheEntry;
+import org.example.common.response.ResultEntity;
+import org.example.conf.RedisConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比jackson与kryo两种值序列化方式的体积与序列化、反序列化耗时
+ * <p>
+ * 序列化器由{@link RedisConfig}按配置创建，与应用中使用的完全一致。
+ * 值为读穿缓存保存的{@link CacheEntry}，内容是{@code rows}行的查询结果；体积在准备阶段输出
+ * <pre>
+ * mvn test-compile
+ * java -cp target/test-classes:依赖 org.example.benchmark.SerializerBenchmark
+ * </pre>
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializerBenchmark {
+
+    @Param({"jackson", "kryo"})
+    public String serializer;
+
+    /**
+     * 查询结果行数，超过1KB时kryo会压缩
+     */
+    @Param({"1", "100"})
+    public int rows;
+
+    private RedisSerializer<Object> redisSerializer;
+    private CacheEntry value;
+    private byte[] bytes;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        RedisConfig config = new RedisConfig();
+        ReflectionTestUtils.setField(config, "serializer", serializer);
+        ReflectionTestUtils.setField(config, "kryoClasses", new String[]{CacheEntry.class.getName()});
+        redisSerializer = (RedisSerializer<Object>) ReflectionTestUtils.invokeMethod(config, "valueSerializer");
+        value = new CacheEntry(ResultEntity.ok(rows(rows)), 12L, System.currentTimeMillis() + 60000L);
+        bytes = redisSerializer.serialize(value);
+        //反序列化结果与原值一致才有比较的意义
+        CacheEntry copy = (CacheEntry) redisSerializer.deserialize(bytes);
+        if (copy == null || copy.getExpireAt() != value.getExpireAt()) {
+            throw new IllegalStateException(serializer + " round trip failed");
+        }
+        System.out.println(serializer + " rows=" + rows + " size=" + bytes.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return redisSerializer.deserialize(bytes);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static List<Map<String, Object>> rows(int count) {
+        List<Map<String, Object>> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", (long) i);
+            row.put("name", "user-" + i);
+            row.put("email", "user-" + i + "@example.com");
+            row.put("score", i * 1.5D);
+            row.put("active", i % 2 == 0);
+            row.put("createTime", new Date(1600000000000L + i));
+            rows.add(row);
+        }
+        return rows;
+    }
+}
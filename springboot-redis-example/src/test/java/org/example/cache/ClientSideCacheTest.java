@@ -0,0 +1,164 @@
+package org.example.cache;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 客户端缓存集成测试，需要本地redis 6（127.0.0.1:6379），连不上时跳过
+ * <p>
+ * 通过另一个连接修改KEY，验证收到失效消息后本地缓存删除，以及命中、未命中、失效计数和条数上限
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class ClientSideCacheTest {
+    private static final RedisURI REDIS_URI = RedisURI.Builder.redis("127.0.0.1", 6379)
+            .withTimeout(Duration.ofSeconds(1)).build();
+    private static final RedisSerializer<Object> SERIALIZER = RedisSerializer.java();
+    private static final long MAXIMUM_SIZE = 10L;
+
+    private static ClientResources resources;
+    private static RedisClient writerClient;
+    private static StatefulRedisConnection<byte[], byte[]> writer;
+
+    private ClientSideCache cache;
+    private String prefix;
+    private final List<String> keys = new ArrayList<>();
+
+    @BeforeAll
+    public static void connect() {
+        resources = DefaultClientResources.create();
+        writerClient = RedisClient.create(resources, REDIS_URI);
+        try {
+            writer = writerClient.connect(ByteArrayCodec.INSTANCE);
+        } catch (RuntimeException e) {
+            Assumptions.assumeTrue(false, "redis不可用：" + e.getMessage());
+        }
+        //CLIENT TRACKING需要redis 6以上
+        String info = writer.sync().info("server");
+        Assumptions.assumeTrue(majorVersion(info) >= 6, "需要redis 6以上");
+    }
+
+    @AfterAll
+    public static void disconnect() {
+        if (writer != null) {
+            writer.close();
+        }
+        writerClient.shutdown();
+        resources.shutdown();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        cache = new ClientSideCache(resources, REDIS_URI, SERIALIZER, false, new String[0], MAXIMUM_SIZE);
+        prefix = "client-side-cache-test:" + UUID.randomUUID() + ":";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        cache.close();
+        for (String key : keys) {
+            writer.sync().del(bytes(key));
+        }
+    }
+
+    @Test
+    public void setFromAnotherConnectionInvalidatesLocal() throws InterruptedException {
+        String key = key("k1");
+        set(key, "v1");
+        assertEquals("v1", cache.get(key));
+        assertEquals("v1", cache.get(key));
+        Map<String, Long> stats = cache.stats();
+        assertEquals(1L, stats.get("misses"));
+        assertEquals(1L, stats.get("hits"));
+        assertEquals(1L, stats.get("size"));
+
+        set(key, "v2");
+        awaitInvalidations(1L);
+        stats = cache.stats();
+        assertEquals(0L, stats.get("size"));
+        assertEquals("v2", cache.get(key));
+        stats = cache.stats();
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(1L, stats.get("hits"));
+    }
+
+    @Test
+    public void missingKeyIsNotCached() {
+        String key = key("missing");
+        assertEquals(null, cache.get(key));
+        assertEquals(null, cache.get(key));
+        Map<String, Long> stats = cache.stats();
+        assertEquals(2L, stats.get("misses"));
+        assertEquals(0L, stats.get("size"));
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        for (int i = 0; i < MAXIMUM_SIZE * 10; i++) {
+            String key = key("k" + i);
+            set(key, "v" + i);
+            assertEquals("v" + i, cache.get(key));
+        }
+        assertTrue(cache.stats().get("size") <= MAXIMUM_SIZE);
+    }
+
+    private String key(String name) {
+        String key = prefix + name;
+        keys.add(key);
+        return key;
+    }
+
+    private void set(String key, String value) {
+        writer.sync().set(bytes(key), SERIALIZER.serialize(value));
+    }
+
+    /**
+     * 失效消息异步推送，等待计数到达
+     *
+     * @param expected
+     * @throws InterruptedException
+     */
+    private void awaitInvalidations(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000L;
+        while (cache.stats().get("invalidations") < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(expected, cache.stats().get("invalidations"));
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int majorVersion(String info) {
+        for (String line : info.split("\r?\n")) {
+            if (line.startsWith("redis_version:")) {
+                String version = line.substring("redis_version:".length()).trim();
+                return Integer.parseInt(version.substring(0, version.indexOf('.')));
+            }
+        }
+        return 0;
+    }
+}
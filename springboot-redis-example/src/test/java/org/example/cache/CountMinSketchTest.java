@@ -0,0 +1,73 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Count-Min Sketch测试
+ * <p>
+ * hash与MurmurHash3 x64_128（seed为0）对同一字符串的UTF-16LE字节计算的前64位一致
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class CountMinSketchTest {
+
+    @Test
+    public void hashMatchesMurmur3Vectors() {
+        assertEquals(0L, CountMinSketch.hash64(""));
+        assertEquals(-7591212652331886403L, CountMinSketch.hash64("a"));
+        assertEquals(875283225144872419L, CountMinSketch.hash64("abc"));
+        //恰好一块（8个字符）与一块加尾部
+        assertEquals(2883330415088479922L, CountMinSketch.hash64("abcdefgh"));
+        assertEquals(1929419699232638766L, CountMinSketch.hash64("abcdefghi"));
+        assertEquals(-3293434792407308376L, CountMinSketch.hash64("hello world"));
+        assertEquals(8808960207190470579L, CountMinSketch.hash64("user:12345678"));
+        assertEquals(-2966923161665573546L, CountMinSketch.hash64("热点KEY"));
+        StringBuilder longKey = new StringBuilder();
+        for (int i = 0; i < 33; i++) {
+            longKey.append('x');
+        }
+        assertEquals(-2931754709142744346L, CountMinSketch.hash64(longKey.toString()));
+    }
+
+    @Test
+    public void estimateNeverUnderCounts() {
+        CountMinSketch sketch = new CountMinSketch(64);
+        for (int i = 0; i < 1000; i++) {
+            sketch.increment("key" + (i % 100));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertTrue(sketch.estimate("key" + i) >= 10L);
+        }
+    }
+
+    @Test
+    public void sameStringHashCodeDoesNotCollideInEveryRow() {
+        //"Aa"和"BB"的String.hashCode相同
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        CountMinSketch sketch = new CountMinSketch(1024);
+        for (int i = 0; i < 10; i++) {
+            sketch.increment("Aa");
+        }
+        assertEquals(10L, sketch.estimate("Aa"));
+        assertEquals(0L, sketch.estimate("BB"));
+    }
+
+    @Test
+    public void halveDecaysCounts() {
+        CountMinSketch sketch = new CountMinSketch(1024);
+        for (int i = 0; i < 9; i++) {
+            sketch.increment("k");
+        }
+        assertEquals(10L, sketch.increment("k"));
+        sketch.halve();
+        assertEquals(5L, sketch.estimate("k"));
+        sketch.halve();
+        sketch.halve();
+        sketch.halve();
+        assertEquals(0L, sketch.estimate("k"));
+    }
+}
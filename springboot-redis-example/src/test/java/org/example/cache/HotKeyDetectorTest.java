@@ -0,0 +1,106 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 热点KEY识别测试
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class HotKeyDetectorTest {
+    private static final int WIDTH = 1024;
+    private static final long THRESHOLD = 3L;
+    /**
+     * 测试期间不会衰减
+     */
+    private static final long NO_DECAY = 3600000L;
+
+    private final List<String> demoted = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    public void setUp() {
+        demoted.clear();
+    }
+
+    @Test
+    public void keyIsPromotedAtThreshold() {
+        HotKeyDetector detector = detector(2, NO_DECAY);
+        assertFalse(detector.record("a"));
+        assertFalse(detector.record("a"));
+        assertFalse(detector.isHot("a"));
+        assertTrue(detector.record("a"));
+        assertTrue(detector.isHot("a"));
+        assertTrue(detector.record("a"));
+        assertEquals(Collections.emptyList(), demoted);
+    }
+
+    @Test
+    public void fullHotSetReplacesMinimum() {
+        HotKeyDetector detector = detector(2, NO_DECAY);
+        record(detector, "a", 5);
+        record(detector, "b", 3);
+        assertTrue(detector.isHot("a"));
+        assertTrue(detector.isHot("b"));
+        //计数与热点中的最小值相同时不替换
+        record(detector, "c", 3);
+        assertFalse(detector.isHot("c"));
+        assertEquals(Collections.emptyList(), demoted);
+
+        assertTrue(detector.record("c"));
+        assertTrue(detector.isHot("c"));
+        assertFalse(detector.isHot("b"));
+        assertTrue(detector.isHot("a"));
+        assertEquals(Collections.singletonList("b"), demoted);
+        List<String> keys = new ArrayList<>();
+        for (HotKeyDetector.HotKey hotKey : detector.hotKeys()) {
+            keys.add(hotKey.getKey());
+        }
+        assertEquals(Arrays.asList("a", "c"), keys);
+    }
+
+    @Test
+    public void decayDemotesCooledKeys() throws InterruptedException {
+        HotKeyDetector detector = detector(2, 50L);
+        record(detector, "cold", 4);
+        assertTrue(detector.isHot("cold"));
+        Thread.sleep(80L);
+        //衰减在访问时顺带完成：计数减半为2，低于阈值
+        detector.record("other");
+        assertFalse(detector.isHot("cold"));
+        assertEquals(Collections.singletonList("cold"), demoted);
+    }
+
+    @Test
+    public void keptAccessSurvivesDecay() throws InterruptedException {
+        HotKeyDetector detector = detector(2, 50L);
+        record(detector, "warm", 8);
+        Thread.sleep(80L);
+        //减半后为4，仍不低于阈值
+        assertTrue(detector.record("warm"));
+        assertTrue(detector.isHot("warm"));
+        assertEquals(Collections.emptyList(), demoted);
+    }
+
+    private HotKeyDetector detector(int topK, long window) {
+        HotKeyDetector detector = new HotKeyDetector(WIDTH, topK, THRESHOLD, window);
+        detector.setDemotionListener(demoted::add);
+        return detector;
+    }
+
+    private static void record(HotKeyDetector detector, String key, int times) {
+        for (int i = 0; i < times; i++) {
+            detector.record(key);
+        }
+    }
+}
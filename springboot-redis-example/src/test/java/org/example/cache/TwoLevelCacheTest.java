@@ -0,0 +1,212 @@
+package org.example.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 二级缓存测试：redis一级用内存Cache代替，验证本地回填的epoch判断和失效通知的解析，不需要redis
+ *
+ * @author <a href="mailto:itfuyun@gmail.com">Tanxh</a>
+ * @since 1.0
+ */
+public class TwoLevelCacheTest {
+    private static final String NAME = "test";
+
+    private BlockingCache remote;
+    private StringRedisTemplate stringRedisTemplate;
+    private TwoLevelCacheManager cacheManager;
+    private TwoLevelCache cache;
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setUp() {
+        remote = new BlockingCache(NAME);
+        RedisCacheManager redisCacheManager = mock(RedisCacheManager.class);
+        when(redisCacheManager.getCache(NAME)).thenReturn(remote);
+        stringRedisTemplate = mock(StringRedisTemplate.class);
+        cacheManager = new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate, 100L, 60L, null);
+        cache = (TwoLevelCache) cacheManager.getCache(NAME);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void lookupFillsLocal() {
+        remote.put("k", "v1");
+        assertEquals("v1", cache.get("k").get());
+        assertEquals("v1", local("k"));
+    }
+
+    @Test
+    public void evictDuringFillDoesNotLeaveOldValue() throws Exception {
+        remote.put("k", "v1");
+        remote.blockNextGet();
+        Future<Cache.ValueWrapper> reader = executor.submit(() -> cache.get("k"));
+        //读取线程已经从redis读到v1，还没有回填本地
+        assertTrue(remote.read.await(1, TimeUnit.SECONDS));
+        //其他节点修改了redis并发出失效通知
+        remote.put("k", "v2");
+        cacheManager.onMessage(message("other-node|" + NAME + "|k"), null);
+        remote.proceed.countDown();
+        assertEquals("v1", reader.get(1, TimeUnit.SECONDS).get());
+
+        assertNull(local("k"));
+        assertEquals("v2", cache.get("k").get());
+        assertEquals("v2", local("k"));
+    }
+
+    @Test
+    public void putDuringFillDoesNotLeaveOldValue() throws Exception {
+        remote.put("k", "v1");
+        remote.blockNextGet();
+        Future<Cache.ValueWrapper> reader = executor.submit(() -> cache.get("k"));
+        assertTrue(remote.read.await(1, TimeUnit.SECONDS));
+        cache.put("k", "v2");
+        remote.proceed.countDown();
+        reader.get(1, TimeUnit.SECONDS);
+        assertEquals("v2", local("k"));
+    }
+
+    @Test
+    public void messageEvictsSingleKey() {
+        fill("k1", "k2");
+        cacheManager.onMessage(message("other-node|" + NAME + "|k1"), null);
+        assertNull(local("k1"));
+        assertEquals("v", local("k2"));
+    }
+
+    @Test
+    public void messageEvictsBatch() {
+        fill("k1", "k2", "k3");
+        cacheManager.onMessage(message("other-node|" + NAME + "|k1\0k3"), null);
+        assertNull(local("k1"));
+        assertEquals("v", local("k2"));
+        assertNull(local("k3"));
+    }
+
+    @Test
+    public void keyMayContainSeparator() {
+        fill("a|b", "c");
+        cacheManager.onMessage(message("other-node|" + NAME + "|a|b"), null);
+        assertNull(local("a|b"));
+        assertEquals("v", local("c"));
+    }
+
+    @Test
+    public void messageWithoutKeyClearsCache() {
+        fill("k1", "k2");
+        cacheManager.onMessage(message("other-node|" + NAME), null);
+        assertNull(local("k1"));
+        assertNull(local("k2"));
+    }
+
+    @Test
+    public void messageForUnknownCacheIsIgnored() {
+        fill("k1");
+        cacheManager.onMessage(message("other-node|unknown|k1"), null);
+        cacheManager.onMessage(message("malformed"), null);
+        assertEquals("v", local("k1"));
+    }
+
+    @Test
+    public void ownMessageIsIgnored() {
+        fill("k1");
+        cache.evict("k2");
+        ArgumentCaptor<String> published = ArgumentCaptor.forClass(String.class);
+        verify(stringRedisTemplate).convertAndSend(eq(TwoLevelCacheManager.CHANNEL), published.capture());
+        //把本节点发出的通知原样送回，本地缓存不受影响
+        String own = published.getValue();
+        assertTrue(own.endsWith("|" + NAME + "|k2"));
+        cacheManager.onMessage(message(own.substring(0, own.length() - 2) + "k1"), null);
+        assertEquals("v", local("k1"));
+    }
+
+    @Test
+    public void batchInvalidationPublishesOneMessage() {
+        fill("k1", "k2");
+        cache.invalidateLocal(Arrays.asList("k1", "k2"));
+        assertNull(local("k1"));
+        assertNull(local("k2"));
+        ArgumentCaptor<String> published = ArgumentCaptor.forClass(String.class);
+        verify(stringRedisTemplate).convertAndSend(eq(TwoLevelCacheManager.CHANNEL), published.capture());
+        assertTrue(published.getValue().endsWith("|" + NAME + "|k1\0k2"));
+    }
+
+    private void fill(String... keys) {
+        for (String key : keys) {
+            remote.put(key, "v");
+            cache.get(key);
+            assertEquals("v", local(key));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object local(String key) {
+        return ((com.github.benmanes.caffeine.cache.Cache<String, Object>) cache.getNativeCache()).getIfPresent(key);
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(TwoLevelCacheManager.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 可以在读取到值之后、返回之前暂停的内存Cache，模拟redis读取期间发生的修改
+     */
+    private static class BlockingCache extends ConcurrentMapCache {
+        private volatile boolean block;
+        private final CountDownLatch read = new CountDownLatch(1);
+        private final CountDownLatch proceed = new CountDownLatch(1);
+
+        BlockingCache(String name) {
+            super(name, false);
+        }
+
+        void blockNextGet() {
+            block = true;
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            ValueWrapper wrapper = super.get(key);
+            if (block) {
+                block = false;
+                read.countDown();
+                try {
+                    proceed.await(1, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return wrapper;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.dto;
 
+import org.example.common.sensitive.Sensitive;
+
 import javax.validation.constraints.NotEmpty;
 
 /**
@@ -15,6 +17,7 @@ public class UserDTO {
     /**
      * 登录密码
      */
+    @Sensitive
     @NotEmpty(message = "登录密码不能为空")
     private String password;
     /**
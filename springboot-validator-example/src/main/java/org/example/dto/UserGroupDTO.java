@@ -1,5 +1,6 @@
 package org.example.dto;
 
+import org.example.common.sensitive.Sensitive;
 import org.example.group.Insert;
 import org.example.group.Update;
 
@@ -18,6 +19,7 @@ public class UserGroupDTO {
     /**
      * 登录密码
      */
+    @Sensitive
     @NotEmpty(message = "登录密码不能为空", groups = {Insert.class})
     private String password;
     /**